@@ -205,9 +205,19 @@ public class IntegrationBenchmark {
                     throw new java.net.http.HttpTimeoutException("ingestion status wait timed out");
                 }
                 var resp = indexingClient.updateIndexForBook(bookId);
-                if (resp.statusCode() != 200) {
+                if (resp.statusCode() == 429) {
+                    long retryAfter = Long.parseLong(resp.headers().firstValue("Retry-After").orElse("1"));
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(retryAfter));
+                    continue;
+                }
+                if (resp.statusCode() != 202) {
                     throw new IOException("Indexing failed. Status=" + resp.statusCode() + " Body=" + resp.body());
                 }
+                String jobLocation = resp.headers().firstValue("Location")
+                        .orElseThrow(() -> new IOException("Indexing job has no Location header"));
+                if (!waitUntilIndexed(jobLocation, httpRetries)) {
+                    throw new java.net.http.HttpTimeoutException("indexing job wait timed out");
+                }
                 ok = true;
                 break;
             } catch (ConnectException | java.net.http.HttpTimeoutException e) {
@@ -245,6 +255,20 @@ public class IntegrationBenchmark {
         return false;
     }
 
+    private boolean waitUntilIndexed(String jobLocation, int maxPolls) throws Exception {
+        for (int i = 0; i < Math.max(1, maxPolls); i++) {
+            var jobResp = indexingClient.jobStatus(jobLocation);
+            if (jobResp.statusCode() == 200) {
+                if (jobResp.body().contains("\"state\":\"completed\"")) return true;
+                if (jobResp.body().contains("\"state\":\"failed\"")) {
+                    throw new IOException("Indexing job failed. Body=" + jobResp.body());
+                }
+            }
+            Thread.sleep(50L * (i + 1));
+        }
+        return false;
+    }
+
     @Benchmark
     public void search_once() throws Exception {
         String keyword = iterKeywords.get((keywordCursor++) % iterKeywords.size());
@@ -24,6 +24,13 @@ public class IndexingClient {
         return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
     }
 
+    public HttpResponse<String> jobStatus(String jobLocation) throws IOException, InterruptedException {
+        var request = HttpRequest.newBuilder(URI.create(this.urlIndexing + jobLocation))
+                .header("Content-Type", "application/json")
+                .GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
     public HttpResponse<String> rebuildIndexForBook() throws IOException, InterruptedException {
         String urlIndexingBook = this.urlIndexing + "/index/rebuild";
         var request = HttpRequest.newBuilder(URI.create(urlIndexingBook))
@@ -1,5 +1,7 @@
 package com.tahs.orchestrator;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.tahs.clients.IndexingClient;
 import com.tahs.clients.IngestionClient;
 import com.tahs.clients.SearchClient;
@@ -7,8 +9,12 @@ import com.tahs.tracker.DownloadTracker;
 import com.tahs.tracker.IndexingTracker;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
@@ -19,6 +25,12 @@ public class Orchestrator {
     private final SearchClient searchClient;
     private static final int MAX_BOOKS = 70_000;
     private static final long MAX_RETRIES = 10;
+    private static final Gson GSON = new Gson();
+    // Indexing jobs in flight, book id -> job Location; polled once per tick, never waited on.
+    private final Map<String, String> pendingJobs = new LinkedHashMap<>();
+    private Instant indexingRetryAt = Instant.MIN;
+
+    private record JobStatus(String job_id, String state, String error) {}
 
     public Orchestrator(IngestionClient ingestionClient,
                         IndexingClient indexingClient,
@@ -31,18 +43,23 @@ public class Orchestrator {
     public void execute() throws IOException, InterruptedException {
         DownloadTracker.createFileIfNotExists();
         IndexingTracker.createFileIfNotExists();
-        if (areMissingBooksIndexed()) {
-            var indexedBooks = IndexingTracker.getIndexedBooks();
-            var downloadedBooks = DownloadTracker.getDownloadedBooks();
-            Set<String> indexedSet = new HashSet<>(indexedBooks);
-
-            List<String> notIndexedBooks = downloadedBooks.stream()
-                    .filter(id -> !indexedSet.contains(id))
-                    .collect(Collectors.toList());
+        pollPendingJobs();
+        List<String> notIndexedBooks = booksToIndex();
+        if (!notIndexedBooks.isEmpty()) {
+            if (Instant.now().isBefore(indexingRetryAt)) return;
             var bookId = getBookId(notIndexedBooks);
             var response = indexingClient.updateIndexForBook(bookId);
             if (response.statusCode() == 200) {
                 IndexingTracker.markAsIndexed(bookId);
+            } else if (response.statusCode() == 202) {
+                String jobLocation = response.headers().firstValue("Location")
+                        .orElseThrow(() -> new IOException("Indexing job has no Location header"));
+                pendingJobs.put(bookId, jobLocation);
+            } else if (response.statusCode() == 429) {
+                long retryAfter = response.headers().firstValue("Retry-After")
+                        .map(Long::parseLong).orElse(1L);
+                System.out.println("Indexing queue full, retrying book " + bookId + " after " + retryAfter + "s");
+                indexingRetryAt = Instant.now().plusSeconds(retryAfter);
             } else {
                 throw new IOException("Fail with Status: " + response.statusCode() +
                         " and body: " + response.body());
@@ -60,6 +77,44 @@ public class Orchestrator {
         }
     }
 
+    // Downloaded books that are neither indexed nor waiting on a job.
+    private List<String> booksToIndex() {
+        Set<String> indexedSet = new HashSet<>(IndexingTracker.getIndexedBooks());
+        return DownloadTracker.getDownloadedBooks().stream()
+                .filter(id -> !indexedSet.contains(id) && !pendingJobs.containsKey(id))
+                .collect(Collectors.toList());
+    }
+
+    // One status request per pending job: completed jobs are marked, failed or unknown ones are
+    // dropped so their book is submitted again, and the rest are checked on the next tick.
+    private void pollPendingJobs() throws IOException, InterruptedException {
+        Iterator<Map.Entry<String, String>> jobs = pendingJobs.entrySet().iterator();
+        while (jobs.hasNext()) {
+            var job = jobs.next();
+            var response = indexingClient.jobStatus(job.getValue());
+            if (response.statusCode() == 404) {
+                System.out.println("Indexing job " + job.getValue() + " not found, resubmitting book " + job.getKey());
+                jobs.remove();
+                continue;
+            }
+            if (response.statusCode() != 200) continue;
+            JobStatus status;
+            try {
+                status = GSON.fromJson(response.body(), JobStatus.class);
+            } catch (JsonParseException e) {
+                throw new IOException("Unreadable indexing job " + job.getValue() + ": " + response.body(), e);
+            }
+            if (status == null) continue;
+            if ("completed".equals(status.state())) {
+                IndexingTracker.markAsIndexed(job.getKey());
+                jobs.remove();
+            } else if ("failed".equals(status.state())) {
+                System.out.println("Indexing job " + status.job_id() + " for book " + job.getKey() + " failed: " + status.error());
+                jobs.remove();
+            }
+        }
+    }
+
     private static String getBookId(List<String> notIndexedBooks) {
         return notIndexedBooks.stream().findFirst().get();
     }
@@ -68,10 +123,6 @@ public class Orchestrator {
         return this.searchClient;
     }
 
-    private static boolean areMissingBooksIndexed() {
-        return DownloadTracker.getDownloadedBooks().size() - IndexingTracker.getIndexedBooks().size() > 0;
-    }
-
     private boolean checkBookIsDownloaded(String bookId) throws IOException, InterruptedException {
         var response = this.ingestionClient.status(bookId);
         if (response.statusCode() == 200) {
@@ -1,22 +1,30 @@
 package com.tahs;
 
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializer;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
-import com.tahs.application.exceptions.BookNotFound;
+import com.tahs.application.exceptions.RebuildInProgress;
+import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.application.usecase.IndexJobService;
 import com.tahs.application.usecase.IndexService;
+import com.tahs.application.usecase.StatsService;
 import com.tahs.config.AppConfig;
 import com.tahs.infrastructure.persistence.MongoInvertedIndexRepository;
 import com.tahs.infrastructure.persistence.MongoMetadataRepository;
+import com.tahs.infrastructure.persistence.segments.SegmentInvertedIndexRepository;
 import com.tahs.infrastructure.serialization.books.GutenbergHeaderSerializer;
 import io.javalin.Javalin;
 import com.google.gson.Gson;
 import org.jetbrains.annotations.NotNull;
 import io.github.cdimascio.dotenv.Dotenv;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -42,52 +50,84 @@ public class Main {
 
         var mongoClient = MongoClients.create(appConfig.dbUrl());
         var indexService = getIndexService(mongoClient,appConfig);
+        var indexJobs = new IndexJobService(indexService, appConfig.indexWorkers(), appConfig.indexQueueCapacity());
+        var statsService = new StatsService(indexService::getStats, Duration.ofMillis(appConfig.statsRefreshMillis()));
 
         app.get("/index/status", ctx -> {
-            var stats = indexService.getStats();
+            var stats = statsService.current();
             ctx.result(gson.toJson(stats));
         });
 
         app.post("/index/update/{book_id}", ctx -> {
             String bookId = ctx.pathParam("book_id");
-            System.out.println("Indexing book " + bookId + "...");
-
-            try {
-                indexService.updateByBookId(bookId);
-                Map<String, Object> response = Map.of(
-                        "book_id", bookId,
-                        "index", "updated"
-                );
-                ctx.status(200).result(gson.toJson(response));
-            }
-            catch (BookNotFound e) {
-                ctx.status(404);
+            var job = indexJobs.submit(bookId);
+            if (job.isEmpty()) {
+                ctx.status(429).header("Retry-After", Long.toString(indexJobs.retryAfterSeconds()));
                 Map<String, Object> error = Map.of(
                         "book_id", bookId,
-                        "error", "Book not found",
-                        "message", e.getMessage()
+                        "error", "Indexing queue is full"
                 );
                 ctx.result(gson.toJson(error));
+                return;
             }
-            catch (Exception e) {
-                ctx.status(500);
-                Map<String, Object> errorResponse = Map.of(
-                        "error", "Error interno al actualizar el índice",
-                        "details", e.getMessage()
-                );
-                ctx.result(gson.toJson(errorResponse));
+            System.out.println("Queued book " + bookId + " as job " + job.get().job_id());
+            ctx.status(202).header("Location", "/index/jobs/" + job.get().job_id());
+            ctx.result(gson.toJson(job.get()));
+        });
+
+        app.post("/index/batch", ctx -> {
+            BatchRequest request;
+            try {
+                request = gson.fromJson(ctx.body(), BatchRequest.class);
+            } catch (JsonParseException e) {
+                request = null;
+            }
+            if (request == null || request.book_ids() == null || request.book_ids().isEmpty()) {
+                ctx.status(400).result(gson.toJson(Map.of("error", "Body must be {\"book_ids\": [...]} with at least one id")));
+                return;
+            }
+            var job = indexJobs.submitBatch(request.book_ids());
+            if (job.isEmpty()) {
+                ctx.status(429).header("Retry-After", Long.toString(indexJobs.retryAfterSeconds()));
+                ctx.result(gson.toJson(Map.of("error", "Indexing queue is full")));
+                return;
+            }
+            System.out.println("Queued batch of " + request.book_ids().size() + " books as job " + job.get().job_id());
+            ctx.status(202).header("Location", "/index/jobs/" + job.get().job_id());
+            ctx.result(gson.toJson(job.get()));
+        });
+
+        app.get("/index/jobs/{job_id}", ctx -> {
+            var job = indexJobs.find(ctx.pathParam("job_id"));
+            if (job.isEmpty()) {
+                ctx.status(404).result(gson.toJson(Map.of("error", "Job not found")));
+                return;
+            }
+            ctx.result(gson.toJson(job.get()));
+        });
+
+        app.get("/index/rebuild/status", ctx -> {
+            var stats = indexService.getRebuildStats();
+            if (stats.isEmpty()) {
+                ctx.status(404).result(gson.toJson(Map.of("error", "No rebuild has been started")));
+                return;
             }
+            ctx.result(gson.toJson(stats.get()));
         });
 
         app.post("/index/rebuild", ctx -> {
             System.out.println("Rebuild Index ...");
             long start = System.currentTimeMillis();
-            indexService.rebuildIndex();
+            try {
+                indexService.rebuildIndex();
+            } catch (RebuildInProgress e) {
+                ctx.status(409).result(gson.toJson(Map.of("error", e.getMessage())));
+                return;
+            }
             long finish = System.currentTimeMillis();
             long timeElapsed = finish - start;
-            var allBooks = indexService.getAllBooks();
             Map<String, Object> response = Map.of(
-                    "books_processed", allBooks.size(),
+                    "books_processed", indexService.countBooks(),
                     "elapsed_time", TimeUnit.MILLISECONDS.toSeconds(timeElapsed) +"s"
             );
             ctx.result(gson.toJson(response));
@@ -96,6 +136,8 @@ public class Main {
         return app;
     }
 
+    private record BatchRequest(List<String> book_ids) {}
+
     private static AppConfig CheckEnvVars(Dotenv dotenv) {
         String dbUrl = Optional.ofNullable(dotenv.get("MONGO_URL"))
                 .orElse(System.getenv("MONGO_URL"));
@@ -109,20 +151,65 @@ public class Main {
         String portStr = Optional.ofNullable(dotenv.get("PORT"))
                 .orElse(System.getenv("PORT"));
         int port = portStr != null ? Integer.parseInt(portStr) : 8080;
+        int batchSize = envInt(dotenv, "INDEX_BATCH_SIZE", 1000);
+        int flushParallelism = envInt(dotenv, "INDEX_FLUSH_PARALLELISM", 4);
+        long rebuildMemoryBytes = envInt(dotenv, "REBUILD_MEMORY_MB", 256) * 1024L * 1024L;
+        String rebuildSpillDir = envString(dotenv, "REBUILD_SPILL_DIR", "spimi");
+        int rebuildReaders = envInt(dotenv, "REBUILD_READERS", 4);
+        int rebuildTokenizers = envInt(dotenv, "REBUILD_TOKENIZERS", Runtime.getRuntime().availableProcessors());
+        int rebuildWriters = envInt(dotenv, "REBUILD_WRITERS", 2);
+        int rebuildQueueCapacity = envInt(dotenv, "REBUILD_QUEUE_CAPACITY", 64);
+        int indexWorkers = envInt(dotenv, "INDEX_WORKERS", 2);
+        int indexQueueCapacity = envInt(dotenv, "INDEX_QUEUE_CAPACITY", 1000);
+        String indexStore = envString(dotenv, "INDEX_STORE", "mongo");
+        String indexDir = envString(dotenv, "INDEX_DIR", "index");
+        int indexMergeFactor = envInt(dotenv, "INDEX_MERGE_FACTOR", 8);
+        int statsRefreshMillis = envInt(dotenv, "INDEX_STATS_REFRESH_MS", 5000);
         return new AppConfig(
                 dbUrl,
                 databaseName,
                 collectionMetaData,
                 collectionIndex,
-                port
+                port,
+                batchSize,
+                flushParallelism,
+                rebuildMemoryBytes,
+                rebuildSpillDir,
+                rebuildReaders,
+                rebuildTokenizers,
+                rebuildWriters,
+                rebuildQueueCapacity,
+                indexWorkers,
+                indexQueueCapacity,
+                indexStore,
+                indexDir,
+                indexMergeFactor,
+                statsRefreshMillis
         );
     }
 
+    private static String envString(Dotenv dotenv, String name, String defaultValue) {
+        String value = Optional.ofNullable(dotenv.get(name))
+                .orElse(System.getenv(name));
+        return value != null && !value.isBlank() ? value : defaultValue;
+    }
+
+    private static int envInt(Dotenv dotenv, String name, int defaultValue) {
+        String value = envString(dotenv, name, null);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
     @NotNull
     private static IndexService getIndexService(MongoClient mongoClient, AppConfig appConfig) {
-        var indexRepository = new MongoInvertedIndexRepository(mongoClient, appConfig.databaseName(), appConfig.collectionIndexName());
+        InvertedIndexRepository indexRepository = appConfig.indexStore().equalsIgnoreCase("file")
+                ? new SegmentInvertedIndexRepository(Path.of(appConfig.indexDir()), appConfig.indexMergeFactor())
+                : new MongoInvertedIndexRepository(mongoClient, appConfig.databaseName(), appConfig.collectionIndexName(),
+                        appConfig.indexBatchSize(), appConfig.indexFlushParallelism());
         var metadataRepository = new MongoMetadataRepository(mongoClient, appConfig.databaseName(), appConfig.collectionMetadataName());
         var gutenbergHeaderSerializer = new GutenbergHeaderSerializer();
-        return new IndexService(indexRepository, metadataRepository,gutenbergHeaderSerializer);
+        return new IndexService(indexRepository, metadataRepository,gutenbergHeaderSerializer,
+                appConfig.rebuildMemoryBudgetBytes(), Path.of(appConfig.rebuildSpillDir()), appConfig.indexBatchSize(),
+                appConfig.rebuildReaders(), appConfig.rebuildTokenizers(), appConfig.rebuildWriters(),
+                appConfig.rebuildQueueCapacity());
     }
 }
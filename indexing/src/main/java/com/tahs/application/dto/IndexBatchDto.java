@@ -0,0 +1,5 @@
+package com.tahs.application.dto;
+
+import java.util.List;
+
+public record IndexBatchDto(List<String> indexed_book_ids, List<String> failed_book_ids, int terms) {}
@@ -0,0 +1,8 @@
+package com.tahs.application.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public record IndexJobDto(String job_id, String book_id, List<String> book_ids, String state, Integer queue_position,
+                          Instant submitted_at, Instant started_at, Instant finished_at, String error,
+                          IndexBatchDto batch) {}
@@ -2,5 +2,5 @@ package com.tahs.application.dto;
 
 import java.time.Instant;
 
-public record StatsDto(int books_indexed, double sizeMB, Instant lastUpdate) {}
-
+public record StatsDto(int books_indexed, double sizeMB, Instant lastUpdate, long terms, long postings,
+                       double average_book_length, long generation) {}
@@ -0,0 +1,7 @@
+package com.tahs.application.exceptions;
+
+public class RebuildInProgress extends RuntimeException {
+    public RebuildInProgress() {
+        super("A rebuild is already running");
+    }
+}
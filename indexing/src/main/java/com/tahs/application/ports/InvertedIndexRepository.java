@@ -1,6 +1,8 @@
 package com.tahs.application.ports;
 
 import com.tahs.domain.IndexStats;
+import com.tahs.domain.TermFrequencies;
+import com.tahs.domain.TermPostings;
 
 import java.util.List;
 import java.util.Map;
@@ -8,8 +10,17 @@ import java.util.Set;
 
 public interface InvertedIndexRepository {
 
-    boolean indexBook(String book_id, Set<String> terms);
+    boolean indexBook(String book_id, TermFrequencies terms);
+
+    void indexPostings(Map<String, TermPostings> postingsByTerm);
+
+    void indexBatch(Map<String, TermPostings> postingsByTerm);
+
+    void indexDocumentLengths(Map<Integer, Integer> lengthsByBook);
+
     void deleteAll();
 
+    Shadow<InvertedIndexRepository> openShadow();
+
     IndexStats getStats();
 }
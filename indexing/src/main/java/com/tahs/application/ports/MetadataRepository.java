@@ -9,5 +9,9 @@ public interface MetadataRepository {
 
     void deleteAll();
 
+    Shadow<MetadataRepository> openShadow();
+
     List<Book> getAll();
+
+    long count();
 }
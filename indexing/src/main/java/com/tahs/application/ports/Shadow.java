@@ -0,0 +1,11 @@
+package com.tahs.application.ports;
+
+// Empty copy of a repository that a rebuild writes into while the live data keeps serving reads.
+public interface Shadow<R> {
+    R repository();
+
+    // Atomically replaces the live data with the shadow's contents.
+    void publish();
+
+    void discard();
+}
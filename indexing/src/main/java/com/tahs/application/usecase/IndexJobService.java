@@ -0,0 +1,152 @@
+package com.tahs.application.usecase;
+
+import com.tahs.application.dto.IndexBatchDto;
+import com.tahs.application.dto.IndexJobDto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IndexJobService {
+    private static final int RETAINED_FINISHED_JOBS = 10_000;
+
+    private final IndexService indexService;
+    private final int workers;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, IndexJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<String> finishedJobs = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong completedJobs = new AtomicLong();
+    private final AtomicLong completedNanos = new AtomicLong();
+
+    public IndexJobService(IndexService indexService, int workers, int queueCapacity) {
+        if (workers <= 0) throw new IllegalArgumentException("workers must be > 0");
+        if (queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity must be > 0");
+        this.indexService = indexService;
+        this.workers = workers;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("index-job"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public Optional<IndexJobDto> submit(String bookId) {
+        return enqueue(new IndexJob(Long.toString(sequence.incrementAndGet()), bookId, null));
+    }
+
+    public Optional<IndexJobDto> submitBatch(List<String> bookIds) {
+        return enqueue(new IndexJob(Long.toString(sequence.incrementAndGet()), null, List.copyOf(bookIds)));
+    }
+
+    private Optional<IndexJobDto> enqueue(IndexJob job) {
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            return Optional.empty();
+        }
+        return Optional.of(job.snapshot());
+    }
+
+    public Optional<IndexJobDto> find(String jobId) {
+        var job = jobs.get(jobId);
+        return job == null ? Optional.empty() : Optional.of(job.snapshot());
+    }
+
+    // Time for the current backlog to drain, from the average duration of finished jobs.
+    public long retryAfterSeconds() {
+        long done = completedJobs.get();
+        long averageNanos = done == 0 ? TimeUnit.SECONDS.toNanos(1) : completedNanos.get() / done;
+        long backlogNanos = averageNanos * (executor.getQueue().size() + workers) / workers;
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(backlogNanos));
+    }
+
+    private Integer queuePosition(IndexJob job) {
+        int position = 0;
+        for (Runnable queued : executor.getQueue()) {
+            if (queued == job) return position;
+            position++;
+        }
+        return null;
+    }
+
+    private void finished(IndexJob job) {
+        completedJobs.incrementAndGet();
+        completedNanos.addAndGet(job.finishedNanos - job.startedNanos);
+        finishedJobs.add(job.id);
+        while (finishedJobs.size() > RETAINED_FINISHED_JOBS) {
+            String oldest = finishedJobs.poll();
+            if (oldest != null) jobs.remove(oldest);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class IndexJob implements Runnable {
+        private final String id;
+        private final String bookId;
+        private final List<String> bookIds;
+        private final Instant submittedAt = Instant.now();
+        private volatile String state = "queued";
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+        private volatile IndexBatchDto batch;
+        private long startedNanos;
+        private long finishedNanos;
+
+        IndexJob(String id, String bookId, List<String> bookIds) {
+            this.id = id;
+            this.bookId = bookId;
+            this.bookIds = bookIds;
+        }
+
+        @Override
+        public void run() {
+            startedNanos = System.nanoTime();
+            startedAt = Instant.now();
+            state = "running";
+            System.out.println("Job " + id + ": indexing " + describe() + "...");
+            try {
+                if (bookIds != null) {
+                    batch = indexService.indexBatch(bookIds);
+                } else {
+                    indexService.updateByBookId(bookId);
+                }
+                state = "completed";
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                error = cause.getMessage();
+                state = "failed";
+                System.err.println("Job " + id + " failed for " + describe() + ": " + error);
+            } finally {
+                finishedNanos = System.nanoTime();
+                finishedAt = Instant.now();
+                finished(this);
+            }
+        }
+
+        private String describe() {
+            return bookIds != null ? bookIds.size() + " books" : "book " + bookId;
+        }
+
+        IndexJobDto snapshot() {
+            String current = state;
+            return new IndexJobDto(id, bookId, bookIds, current,
+                    "queued".equals(current) ? queuePosition(this) : null,
+                    submittedAt, startedAt, finishedAt, error, batch);
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package com.tahs.application.usecase;
 
 import com.tahs.application.exceptions.BookNotFound;
+import com.tahs.application.exceptions.RebuildInProgress;
 import com.tahs.domain.Book;
 import com.tahs.domain.BookSection;
+import com.tahs.domain.TermFrequencies;
+import com.tahs.domain.TermPostings;
 import com.tahs.application.ports.InvertedIndexRepository;
 import com.tahs.application.ports.MetadataRepository;
+import com.tahs.application.dto.IndexBatchDto;
 import com.tahs.application.dto.StatsDto;
+import com.tahs.infrastructure.datalake.DatalakeCatalog;
+import com.tahs.infrastructure.index.RebuildPipeline;
+import com.tahs.infrastructure.index.SpimiIndexBuilder;
 import com.tahs.infrastructure.serialization.books.GutenbergHeaderSerializer;
 import com.tahs.infrastructure.serialization.books.TextTokenizer;
 import java.io.IOException;
@@ -13,7 +20,13 @@ import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 public class IndexService {
@@ -21,15 +34,45 @@ public class IndexService {
     private final MetadataRepository metadataRepository;
     private final GutenbergHeaderSerializer gutenbergHeaderSerializer;
     private final InvertedIndexRepository indexRepository;
+    private final long rebuildMemoryBudgetBytes;
+    private final Path rebuildSpillDir;
+    private final int rebuildLoadBatchSize;
+    private final int rebuildReaders;
+    private final int rebuildTokenizers;
+    private final int rebuildWriters;
+    private final int rebuildQueueCapacity;
+    private final DatalakeCatalog datalakeCatalog = new DatalakeCatalog(Path.of("datalake"));
+    private volatile RebuildPipeline lastRebuild;
+    // All rebuilds share the same shadow collections, so only one may run at a time.
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // Books written to the live index while a rebuild runs; replayed once its shadows are published.
+    private volatile Set<String> writtenDuringRebuild;
 
     public IndexService(InvertedIndexRepository indexRepository, MetadataRepository metadataRepository,
                         GutenbergHeaderSerializer gutenbergHeaderSerializer) {
+        this(indexRepository, metadataRepository, gutenbergHeaderSerializer,
+                256L * 1024 * 1024, Path.of(System.getProperty("java.io.tmpdir"), "spimi"), 1000,
+                4, Runtime.getRuntime().availableProcessors(), 2, 64);
+    }
+
+    public IndexService(InvertedIndexRepository indexRepository, MetadataRepository metadataRepository,
+                        GutenbergHeaderSerializer gutenbergHeaderSerializer,
+                        long rebuildMemoryBudgetBytes, Path rebuildSpillDir, int rebuildLoadBatchSize,
+                        int rebuildReaders, int rebuildTokenizers, int rebuildWriters, int rebuildQueueCapacity) {
         this.indexRepository = indexRepository;
         this.metadataRepository = metadataRepository;
         this.gutenbergHeaderSerializer = gutenbergHeaderSerializer;
+        this.rebuildMemoryBudgetBytes = rebuildMemoryBudgetBytes;
+        this.rebuildSpillDir = rebuildSpillDir;
+        this.rebuildLoadBatchSize = rebuildLoadBatchSize;
+        this.rebuildReaders = rebuildReaders;
+        this.rebuildTokenizers = rebuildTokenizers;
+        this.rebuildWriters = rebuildWriters;
+        this.rebuildQueueCapacity = rebuildQueueCapacity;
     }
 
     public void updateByBookId(String bookId) throws BookNotFound {
+        recordRebuildWrite(List.of(bookId));
         try {
             updateMetadata(bookId);
         } catch (BookNotFound | IOException e) {
@@ -42,50 +85,115 @@ public class IndexService {
         }
     }
 
+    public IndexBatchDto indexBatch(List<String> bookIds) {
+        recordRebuildWrite(bookIds);
+        Map<Integer, TermFrequencies> termsByBook = new ConcurrentHashMap<>();
+        Set<String> failed = ConcurrentHashMap.newKeySet();
+        bookIds.stream().distinct().parallel().forEach(bookId -> {
+            try {
+                int id = Integer.parseInt(bookId.trim());
+                updateMetadata(bookId);
+                var bookPath = findBookInDatalakeById(bookId, BookSection.BODY.fileSuffix());
+                termsByBook.put(id, TextTokenizer.extractTermFrequencies(Path.of(bookPath)));
+            } catch (Exception e) {
+                System.err.println("Batch: skipping book " + bookId + ": " + e.getMessage());
+                failed.add(bookId);
+            }
+        });
+
+        var postings = mergeTerms(termsByBook);
+        indexRepository.indexBatch(postings);
+        Map<Integer, Integer> lengths = new HashMap<>();
+        termsByBook.forEach((bookId, terms) -> lengths.put(bookId, terms.length()));
+        indexRepository.indexDocumentLengths(lengths);
+        List<String> indexed = termsByBook.keySet().stream().sorted().map(String::valueOf).toList();
+        return new IndexBatchDto(indexed, failed.stream().sorted().toList(), postings.size());
+    }
+
+    private static Map<String, TermPostings> mergeTerms(Map<Integer, TermFrequencies> termsByBook) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (TermFrequencies terms : termsByBook.values()) {
+            for (String term : terms.terms()) counts.merge(term, 1, Integer::sum);
+        }
+        Map<String, TermPostings> postings = new HashMap<>(counts.size() * 2);
+        Map<String, Integer> filled = new HashMap<>(counts.size() * 2);
+        List<Integer> sortedIds = termsByBook.keySet().stream().sorted().toList();
+        for (int bookId : sortedIds) {
+            for (var entry : termsByBook.get(bookId).counts().entrySet()) {
+                String term = entry.getKey();
+                TermPostings ids = postings.computeIfAbsent(term,
+                        t -> new TermPostings(new int[counts.get(t)], new int[counts.get(t)]));
+                int slot = filled.merge(term, 1, Integer::sum) - 1;
+                ids.bookIds()[slot] = bookId;
+                ids.frequencies()[slot] = entry.getValue();
+            }
+        }
+        return postings;
+    }
+
+    // Blue/green: the rebuild fills shadow copies while search keeps reading the live index and
+    // metadata, which are only replaced once the rebuild has completed. Metadata is published
+    // first so that no indexed book lacks it; the two swaps are not atomic together, and for
+    // that short window search may show new metadata next to the old index. Books updated
+    // while the rebuild ran went to the old live collections, so they are indexed again.
     public void rebuildIndex() throws IOException {
-        indexRepository.deleteAll();
-        metadataRepository.deleteAll();
+        if (!rebuilding.compareAndSet(false, true)) throw new RebuildInProgress();
+        try {
+            rebuildShadows();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private void rebuildShadows() throws IOException {
+        writtenDuringRebuild = ConcurrentHashMap.newKeySet();
+        var indexShadow = indexRepository.openShadow();
+        var metadataShadow = metadataRepository.openShadow();
         Path cwd = Path.of("").toAbsolutePath().normalize();
-        Path parent = cwd.getParent() != null ? cwd.getParent() : cwd;
         List<Path> roots = List.of(
                 cwd.resolve("datalake")
         );
-        for (Path root : roots) {
-            if (!Files.exists(root)) continue;
-            try (Stream<Path> stream = Files.find(
-                    root,
-                    3,
-                    (p, attrs) -> attrs.isRegularFile()
-                            && p.getFileName().toString().endsWith(".txt")
-            )){
-                stream.forEach(pathTxt -> {
-                    try {
-                        if (!Files.exists(pathTxt) &&
-                                !Files.exists(Path.of(pathTxt.toString().replace("header", "body")))){
-                            throw new NoSuchFileException("Not found header and body" + pathTxt.toString() + " in datalake");
-                        }
-                        var bookId = pathTxt.getFileName().toString().split("\\.")[0];
-                        if (pathTxt.getFileName().toString().contains("header")){
-                            var bookHeader = this.gutenbergHeaderSerializer.deserialize(pathTxt.toString());
-                            metadataRepository.save(bookHeader);
-                        }
-                        if (pathTxt.getFileName().toString().contains("body")){
-                            var text = this.gutenbergHeaderSerializer.readFile(pathTxt.toString());
-                            var terms = TextTokenizer.extractTerms(text);
-                            indexRepository.indexBook(bookId,terms);
-                        }
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
-            }
+        try (var builder = new SpimiIndexBuilder(rebuildMemoryBudgetBytes, rebuildSpillDir, rebuildLoadBatchSize)) {
+            var pipeline = new RebuildPipeline(gutenbergHeaderSerializer, metadataShadow.repository(), builder,
+                    rebuildReaders, rebuildTokenizers, rebuildWriters, rebuildQueueCapacity);
+            lastRebuild = pipeline;
+            pipeline.run(roots);
+            builder.loadInto(indexShadow.repository());
+        } catch (IOException | RuntimeException e) {
+            writtenDuringRebuild = null;
+            indexShadow.discard();
+            metadataShadow.discard();
+            throw e;
+        }
+        metadataShadow.publish();
+        indexShadow.publish();
+        replayRebuildWrites();
+    }
+
+    private void recordRebuildWrite(List<String> bookIds) {
+        var written = writtenDuringRebuild;
+        if (written != null) written.addAll(bookIds);
+    }
+
+    private void replayRebuildWrites() {
+        var written = writtenDuringRebuild;
+        writtenDuringRebuild = null;
+        if (written == null || written.isEmpty()) return;
+        List<String> bookIds = written.stream().sorted().toList();
+        System.out.println("Rebuild: replaying " + bookIds.size() + " books updated while it ran");
+        for (int from = 0; from < bookIds.size(); from += rebuildLoadBatchSize) {
+            indexBatch(bookIds.subList(from, Math.min(bookIds.size(), from + rebuildLoadBatchSize)));
         }
     }
 
+    public Optional<RebuildPipeline.Stats> getRebuildStats() {
+        var pipeline = lastRebuild;
+        return pipeline == null ? Optional.empty() : Optional.of(pipeline.stats());
+    }
+
     private void updateIndexWords(String bookId) throws IOException {
         var bookPath = findBookInDatalakeById(bookId, BookSection.BODY.fileSuffix());
-        var text = this.gutenbergHeaderSerializer.readFile(bookPath);
-        var terms = TextTokenizer.extractTerms(text);
+        var terms = TextTokenizer.extractTermFrequencies(Path.of(bookPath));
         indexRepository.indexBook(bookId,terms);
     }
 
@@ -101,6 +209,11 @@ public class IndexService {
         }
 
         var fileName = bookId + "." + bookSection + ".txt";
+        var cataloged = findInCatalog(bookId, bookSection);
+        if (cataloged.isPresent()) {
+            return cataloged.get().toString();
+        }
+
         Path cwd = Path.of("").toAbsolutePath().normalize();  // 👈 This is the current working directory
         Path parent = cwd.getParent() != null ? cwd.getParent() : cwd;
 
@@ -128,16 +241,33 @@ public class IndexService {
         throw new IllegalStateException(new NoSuchFileException("Not found " + fileName + " in datalake"));
     }
 
+    private Optional<Path> findInCatalog(String bookId, String bookSection) {
+        try {
+            return datalakeCatalog.find(Integer.parseInt(bookId.trim()), bookSection)
+                    .filter(Files::isRegularFile);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
     public List<Book> getAllBooks() {
         return metadataRepository.getAll();
     }
 
+    public long countBooks() {
+        return metadataRepository.count();
+    }
+
     public StatsDto getStats() {
         var indexStats = indexRepository.getStats();
         return new StatsDto(
-                metadataRepository.getAll().size(),
+                (int) countBooks(),
                 indexStats.sizeMB(),
-                indexStats.lastUpdate()
+                indexStats.lastUpdate(),
+                indexStats.terms(),
+                indexStats.postings(),
+                indexStats.averageLength(),
+                indexStats.generation()
         );
     }
 }
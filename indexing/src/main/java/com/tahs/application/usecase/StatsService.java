@@ -0,0 +1,46 @@
+package com.tahs.application.usecase;
+
+import com.tahs.application.dto.StatsDto;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Serves /index/status from a snapshot that a background thread recomputes every
+// `maxStaleness`, so a probe never waits on the database. Only the first call, before any
+// snapshot exists, computes one inline. A failed refresh keeps the previous snapshot.
+public class StatsService {
+    private final Supplier<StatsDto> source;
+    private final ScheduledExecutorService refresher;
+    private volatile StatsDto snapshot;
+
+    public StatsService(Supplier<StatsDto> source, Duration maxStaleness) {
+        this.source = source;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(100, maxStaleness.toMillis());
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public StatsDto current() {
+        StatsDto current = snapshot;
+        if (current != null) return current;
+        synchronized (this) {
+            if (snapshot == null) snapshot = source.get();
+            return snapshot;
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            snapshot = source.get();
+        } catch (Exception e) {
+            System.err.println("Stats refresh failed: " + e.getMessage());
+        }
+    }
+}
@@ -45,6 +45,7 @@ public class IndexingBenchmarks {
     private Map<String, Book> metadataRepo;
     private GutenbergHeaderSerializer headerSerializer;
     private AtomicInteger rr;
+    private String bookText;
 
     @Setup(Level.Trial)
     public void setup() {
@@ -57,6 +58,11 @@ public class IndexingBenchmarks {
         availableIds = discoverIdsWithHeaderAndBody(root);
         if (availableIds.isEmpty()) throw new IllegalStateException("No valid <id>.header.txt + <id>.body.txt pairs found in: " + root);
         if (!availableIds.contains(bookId)) bookId = availableIds.get(0);
+        try {
+            bookText = headerSerializer.readFile(findInDatalake(bookId, "body"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @TearDown(Level.Iteration)
@@ -79,6 +85,20 @@ public class IndexingBenchmarks {
         bh.consume(invertedIndex.size());
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<String> tokenizePerBook_regexUnicode() {
+        return TextTokenizer.extractTermsWithRegex(bookText);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Set<String> tokenizePerBook_asciiFastPath() {
+        return TextTokenizer.extractTerms(bookText);
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.Throughput)
     public void throughputIndexing_roundRobin(Blackhole bh) throws IOException {
@@ -5,5 +5,19 @@ public record AppConfig(
         String collectionMetadataName,
         String collectionIndexName,
         String databaseName,
-        int port) {
+        int port,
+        int indexBatchSize,
+        int indexFlushParallelism,
+        long rebuildMemoryBudgetBytes,
+        String rebuildSpillDir,
+        int rebuildReaders,
+        int rebuildTokenizers,
+        int rebuildWriters,
+        int rebuildQueueCapacity,
+        int indexWorkers,
+        int indexQueueCapacity,
+        String indexStore,
+        String indexDir,
+        int indexMergeFactor,
+        int statsRefreshMillis) {
 }
@@ -2,5 +2,6 @@ package com.tahs.domain;
 
 import java.time.Instant;
 
-public record IndexStats (double sizeMB, Instant lastUpdate) {}
-
+// Collection statistics maintained as the index is written; generation counts counter updates.
+public record IndexStats (double sizeMB, Instant lastUpdate, long books, long terms, long postings,
+                          double averageLength, long generation) {}
@@ -0,0 +1,10 @@
+package com.tahs.domain;
+
+import java.util.Map;
+import java.util.Set;
+
+public record TermFrequencies(Map<String, Integer> counts, int length) {
+    public Set<String> terms() {
+        return counts.keySet();
+    }
+}
@@ -0,0 +1,35 @@
+package com.tahs.domain;
+
+import java.util.Arrays;
+
+// Sorted book ids with the term's frequency in each book, index-aligned.
+public record TermPostings(int[] bookIds, int[] frequencies) {
+    public static final TermPostings EMPTY = new TermPostings(new int[0], new int[0]);
+
+    public int size() {
+        return bookIds.length;
+    }
+
+    public TermPostings slice(int from, int to) {
+        return new TermPostings(Arrays.copyOfRange(bookIds, from, to), Arrays.copyOfRange(frequencies, from, to));
+    }
+
+    // On a shared book id the frequency from `newer` wins.
+    public static TermPostings union(TermPostings older, TermPostings newer) {
+        if (older.size() == 0) return newer;
+        if (newer.size() == 0) return older;
+        int[] a = older.bookIds, b = newer.bookIds;
+        int[] ids = new int[a.length + b.length];
+        int[] tfs = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) { ids[n] = a[i]; tfs[n++] = older.frequencies[i++]; }
+            else if (a[i] > b[j]) { ids[n] = b[j]; tfs[n++] = newer.frequencies[j++]; }
+            else { ids[n] = b[j]; tfs[n++] = newer.frequencies[j++]; i++; }
+        }
+        while (i < a.length) { ids[n] = a[i]; tfs[n++] = older.frequencies[i++]; }
+        while (j < b.length) { ids[n] = b[j]; tfs[n++] = newer.frequencies[j++]; }
+        return n == ids.length ? new TermPostings(ids, tfs)
+                : new TermPostings(Arrays.copyOf(ids, n), Arrays.copyOf(tfs, n));
+    }
+}
@@ -0,0 +1,79 @@
+package com.tahs.infrastructure.datalake;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+public class DatalakeCatalog {
+    public static final String FILE_NAME = "catalog.log";
+
+    public record Entry(int bookId, String relativeDir, long sizeBytes, long timestampMs) {}
+
+    private final Path datalakeRoot;
+    private final Path logFile;
+    private final Int2ObjectOpenHashMap<Entry> entries = new Int2ObjectOpenHashMap<>();
+    private long readOffset;
+
+    public DatalakeCatalog(Path datalakeRoot) {
+        this.datalakeRoot = datalakeRoot.toAbsolutePath().normalize();
+        this.logFile = this.datalakeRoot.resolve(FILE_NAME);
+    }
+
+    public synchronized Optional<Path> find(int bookId, String bookSection) {
+        Entry entry = entries.get(bookId);
+        if (entry == null) {
+            try {
+                refresh();
+            } catch (IOException e) {
+                System.err.println("Could not read datalake catalog " + logFile + ": " + e.getMessage());
+                return Optional.empty();
+            }
+            entry = entries.get(bookId);
+        }
+        if (entry == null) return Optional.empty();
+        return Optional.of(datalakeRoot.resolve(entry.relativeDir()).resolve(bookId + "." + bookSection + ".txt"));
+    }
+
+    public synchronized void refresh() throws IOException {
+        if (!Files.exists(logFile)) return;
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < readOffset) {
+                entries.clear();
+                readOffset = 0;
+            }
+            if (size == readOffset) return;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, size - readOffset));
+            while (buffer.hasRemaining() && channel.read(buffer, readOffset + buffer.position()) > 0) { }
+            buffer.flip();
+            int lastNewline = -1;
+            for (int i = buffer.limit() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') { lastNewline = i; break; }
+            }
+            if (lastNewline < 0) return;
+            String chunk = new String(buffer.array(), 0, lastNewline, StandardCharsets.UTF_8);
+            for (String line : chunk.split("\n")) {
+                Entry entry = parse(line);
+                if (entry != null) entries.put(entry.bookId(), entry);
+            }
+            readOffset += lastNewline + 1;
+        }
+    }
+
+    private static Entry parse(String line) {
+        String[] parts = line.split("\t");
+        if (parts.length != 4) return null;
+        try {
+            return new Entry(Integer.parseInt(parts[0]), parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
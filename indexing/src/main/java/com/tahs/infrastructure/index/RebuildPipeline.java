@@ -0,0 +1,279 @@
+package com.tahs.infrastructure.index;
+
+import com.tahs.application.ports.MetadataRepository;
+import com.tahs.domain.Book;
+import com.tahs.domain.TermFrequencies;
+import com.tahs.infrastructure.serialization.books.GutenbergHeaderSerializer;
+import com.tahs.infrastructure.serialization.books.TextTokenizer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+
+public class RebuildPipeline {
+    private static final Path END_OF_FILES = Path.of("");
+    private static final WriteTask END_OF_WRITES = new WriteTask(-1, null, null);
+
+    public record StageStats(String stage, int workers, int queueDepth, int queueCapacity,
+                             long processed, double perSecond) {}
+
+    public record Stats(String state, long elapsedMs, long filesDiscovered, long filesSkipped, List<StageStats> stages) {}
+
+    private record WriteTask(int bookId, Book header, TermFrequencies terms) {}
+
+    private final GutenbergHeaderSerializer serializer;
+    private final MetadataRepository metadataRepository;
+    private final SpimiIndexBuilder builder;
+    private final int readers;
+    private final int tokenizers;
+    private final int writers;
+    private final int queueCapacity;
+
+    private final BlockingQueue<Path> readQueue;
+    private final BlockingQueue<WriteTask> writeQueue;
+    private final Semaphore tokenizeSlots;
+    private final AtomicInteger tokenizeDepth = new AtomicInteger();
+    private final Stage readStage;
+    private final Stage tokenizeStage;
+    private final Stage writeStage;
+    private final AtomicLong filesDiscovered = new AtomicLong();
+    private final AtomicLong filesSkipped = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile String state = "created";
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    public RebuildPipeline(GutenbergHeaderSerializer serializer, MetadataRepository metadataRepository,
+                           SpimiIndexBuilder builder, int readers, int tokenizers, int writers, int queueCapacity) {
+        if (readers <= 0 || tokenizers <= 0 || writers <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Pipeline stage sizes must be > 0");
+        }
+        this.serializer = serializer;
+        this.metadataRepository = metadataRepository;
+        this.builder = builder;
+        this.readers = readers;
+        this.tokenizers = tokenizers;
+        this.writers = writers;
+        this.queueCapacity = queueCapacity;
+        this.readQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.tokenizeSlots = new Semaphore(queueCapacity);
+        this.readStage = new Stage("read", readers, readQueue::size);
+        this.tokenizeStage = new Stage("tokenize", tokenizers, tokenizeDepth::get);
+        this.writeStage = new Stage("write", writers, writeQueue::size);
+    }
+
+    public void run(List<Path> roots) throws IOException {
+        state = "running";
+        startNanos = System.nanoTime();
+        ExecutorService readPool = Executors.newFixedThreadPool(readers, named("rebuild-read"));
+        ForkJoinPool tokenizePool = new ForkJoinPool(tokenizers);
+        ExecutorService writePool = Executors.newFixedThreadPool(writers, named("rebuild-write"));
+        try {
+            for (int i = 0; i < writers; i++) writePool.execute(this::writeLoop);
+            for (int i = 0; i < readers; i++) readPool.execute(() -> readLoop(tokenizePool));
+
+            discover(roots);
+            for (int i = 0; i < readers; i++) put(readQueue, END_OF_FILES);
+            readPool.shutdown();
+            awaitTermination(readPool);
+
+            tokenizeSlots.acquireUninterruptibly(queueCapacity);
+            tokenizeSlots.release(queueCapacity);
+            for (int i = 0; i < writers; i++) put(writeQueue, END_OF_WRITES);
+            writePool.shutdown();
+            awaitTermination(writePool);
+        } finally {
+            readPool.shutdownNow();
+            tokenizePool.shutdownNow();
+            writePool.shutdownNow();
+            endNanos = System.nanoTime();
+        }
+
+        Throwable error = failure.get();
+        if (error != null) {
+            state = "failed";
+            if (error instanceof IOException io) throw io;
+            if (error instanceof UncheckedIOException io) throw io.getCause();
+            throw new IllegalStateException("Rebuild pipeline failed: " + error.getMessage(), error);
+        }
+        state = "completed";
+        System.out.println("Rebuild pipeline finished: " + stats());
+    }
+
+    public Stats stats() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        long elapsedNanos = startNanos == 0 ? 0 : end - startNanos;
+        return new Stats(
+                state,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                filesDiscovered.get(),
+                filesSkipped.get(),
+                List.of(readStage.snapshot(elapsedNanos), tokenizeStage.snapshot(elapsedNanos),
+                        writeStage.snapshot(elapsedNanos))
+        );
+    }
+
+    private void discover(List<Path> roots) throws IOException {
+        for (Path root : roots) {
+            if (!Files.exists(root)) continue;
+            try (Stream<Path> stream = Files.find(
+                    root,
+                    3,
+                    (p, attrs) -> attrs.isRegularFile() && p.getFileName().toString().endsWith(".txt"))) {
+                var files = stream.iterator();
+                while (files.hasNext() && failure.get() == null) {
+                    put(readQueue, files.next());
+                    filesDiscovered.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void readLoop(ForkJoinPool tokenizePool) {
+        while (true) {
+            Path file = take(readQueue);
+            if (file == END_OF_FILES || file == null) return;
+            if (failure.get() != null) continue;
+            try {
+                String fileName = file.getFileName().toString();
+                int bookId = bookIdOf(fileName);
+                if (bookId < 0) {
+                    filesSkipped.incrementAndGet();
+                    System.out.println("Rebuild: skipping " + file + " (file name is not <book_id>.<section>.txt)");
+                } else if (fileName.contains("header")) {
+                    put(writeQueue, new WriteTask(bookId, serializer.deserialize(file.toString()), null));
+                } else if (fileName.contains("body")) {
+                    ByteBuffer body = map(file);
+                    tokenizeSlots.acquire();
+                    tokenizeDepth.incrementAndGet();
+                    tokenizePool.execute(() -> tokenize(bookId, body));
+                }
+                readStage.processed.incrementAndGet();
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+    }
+
+    // Leading numeric part of "<book_id>.<section>.txt", or -1 for any other file name.
+    static int bookIdOf(String fileName) {
+        int dot = fileName.indexOf('.');
+        String prefix = dot < 0 ? fileName : fileName.substring(0, dot);
+        if (prefix.isEmpty() || prefix.length() > 9) return -1;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (prefix.charAt(i) < '0' || prefix.charAt(i) > '9') return -1;
+        }
+        return Integer.parseInt(prefix);
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return ByteBuffer.allocate(0);
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size).load();
+        }
+    }
+
+    private void tokenize(int bookId, ByteBuffer body) {
+        try {
+            if (failure.get() != null) return;
+            TermFrequencies terms = TextTokenizer.extractTermFrequencies(body);
+            tokenizeStage.processed.incrementAndGet();
+            put(writeQueue, new WriteTask(bookId, null, terms));
+        } catch (Exception e) {
+            fail(e);
+        } finally {
+            tokenizeDepth.decrementAndGet();
+            tokenizeSlots.release();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            WriteTask task = take(writeQueue);
+            if (task == END_OF_WRITES || task == null) return;
+            if (failure.get() != null) continue;
+            try {
+                if (task.header() != null) metadataRepository.save(task.header());
+                if (task.terms() != null) builder.add(task.bookId(), task.terms());
+                writeStage.processed.incrementAndGet();
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+    }
+
+    private void fail(Throwable error) {
+        if (failure.compareAndSet(null, error)) {
+            System.err.println("Rebuild pipeline failed: " + error.getMessage());
+        }
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding the index", e);
+        }
+    }
+
+    private static <T> T take(BlockingQueue<T> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding the index", e);
+        }
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Stage {
+        private final String name;
+        private final int workers;
+        private final IntSupplier depth;
+        private final AtomicLong processed = new AtomicLong();
+
+        Stage(String name, int workers, IntSupplier depth) {
+            this.name = name;
+            this.workers = workers;
+            this.depth = depth;
+        }
+
+        StageStats snapshot(long elapsedNanos) {
+            long done = processed.get();
+            double seconds = elapsedNanos / 1e9;
+            return new StageStats(name, workers, depth.getAsInt(), queueCapacity, done,
+                    seconds > 0 ? done / seconds : 0.0);
+        }
+    }
+}
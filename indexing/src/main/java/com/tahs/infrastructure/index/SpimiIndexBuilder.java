@@ -0,0 +1,227 @@
+package com.tahs.infrastructure.index;
+
+import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.domain.TermFrequencies;
+import com.tahs.domain.TermPostings;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class SpimiIndexBuilder implements Closeable {
+    private static final long TERM_OVERHEAD_BYTES = 96;
+    private static final long POSTING_BYTES = 8;
+
+    private final long memoryBudgetBytes;
+    private final Path spillDir;
+    private final int loadBatchSize;
+    private final List<Path> runs = new ArrayList<>();
+    private Map<String, PostingList> block = new HashMap<>();
+    private final Map<Integer, Integer> lengths = new HashMap<>();
+    private long blockBytes;
+    private long postingsAdded;
+
+    public SpimiIndexBuilder(long memoryBudgetBytes, Path spillDir, int loadBatchSize) {
+        if (memoryBudgetBytes <= 0) throw new IllegalArgumentException("memoryBudgetBytes must be > 0");
+        if (loadBatchSize <= 0) throw new IllegalArgumentException("loadBatchSize must be > 0");
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.spillDir = spillDir;
+        this.loadBatchSize = loadBatchSize;
+    }
+
+    public synchronized void add(int bookId, TermFrequencies terms) throws IOException {
+        for (var entry : terms.counts().entrySet()) {
+            String term = entry.getKey();
+            PostingList postings = block.get(term);
+            if (postings == null) {
+                postings = new PostingList();
+                block.put(term, postings);
+                blockBytes += TERM_OVERHEAD_BYTES + 2L * term.length();
+            }
+            postings.add(bookId, entry.getValue());
+            blockBytes += POSTING_BYTES;
+        }
+        lengths.put(bookId, terms.length());
+        postingsAdded += terms.counts().size();
+        if (blockBytes >= memoryBudgetBytes) {
+            spill();
+        }
+    }
+
+    public synchronized int loadInto(InvertedIndexRepository repository) throws IOException {
+        List<PostingsRun> sources = new ArrayList<>(runs.size() + 1);
+        try {
+            for (Path run : runs) {
+                sources.add(new FileRun(run));
+            }
+            if (!block.isEmpty()) {
+                sources.add(new MemoryRun(block));
+            }
+            int terms = merge(sources, repository);
+            repository.indexDocumentLengths(lengths);
+            System.out.println("SPIMI merge: " + postingsAdded + " postings, " + terms + " terms, "
+                    + runs.size() + " spilled runs");
+            return terms;
+        } finally {
+            for (PostingsRun source : sources) {
+                source.close();
+            }
+            block = new HashMap<>();
+            blockBytes = 0;
+        }
+    }
+
+    private int merge(List<PostingsRun> sources, InvertedIndexRepository repository) throws IOException {
+        PriorityQueue<PostingsRun> heap = new PriorityQueue<>(
+                Math.max(1, sources.size()), Comparator.comparing(PostingsRun::term));
+        for (PostingsRun source : sources) {
+            if (source.advance()) heap.add(source);
+        }
+
+        int terms = 0;
+        Map<String, TermPostings> batch = new LinkedHashMap<>();
+        while (!heap.isEmpty()) {
+            PostingsRun head = heap.poll();
+            String term = head.term();
+            TermPostings merged = head.postings();
+            if (head.advance()) heap.add(head);
+            while (!heap.isEmpty() && heap.peek().term().equals(term)) {
+                PostingsRun same = heap.poll();
+                merged = TermPostings.union(merged, same.postings());
+                if (same.advance()) heap.add(same);
+            }
+            batch.put(term, merged);
+            terms++;
+            if (batch.size() == loadBatchSize) {
+                repository.indexPostings(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) repository.indexPostings(batch);
+        return terms;
+    }
+
+    private void spill() throws IOException {
+        Files.createDirectories(spillDir);
+        Path run = Files.createTempFile(spillDir, "spimi-run-", ".bin");
+        List<String> terms = new ArrayList<>(block.keySet());
+        Collections.sort(terms);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run), 1 << 16))) {
+            out.writeInt(terms.size());
+            for (String term : terms) {
+                TermPostings postings = block.get(term).sortedDistinct();
+                byte[] key = term.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(postings.size());
+                for (int i = 0; i < postings.size(); i++) {
+                    out.writeInt(postings.bookIds()[i]);
+                    out.writeInt(postings.frequencies()[i]);
+                }
+            }
+        }
+        runs.add(run);
+        System.out.println("SPIMI spill #" + runs.size() + ": " + terms.size() + " terms, ~"
+                + (blockBytes >> 20) + " MB -> " + run);
+        block = new HashMap<>();
+        blockBytes = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        block = new HashMap<>();
+        blockBytes = 0;
+        lengths.clear();
+    }
+
+    private interface PostingsRun extends Closeable {
+        boolean advance() throws IOException;
+        String term();
+        TermPostings postings();
+    }
+
+    private static final class MemoryRun implements PostingsRun {
+        private final Map<String, PostingList> block;
+        private final Iterator<String> terms;
+        private String term;
+
+        MemoryRun(Map<String, PostingList> block) {
+            this.block = block;
+            List<String> sorted = new ArrayList<>(block.keySet());
+            Collections.sort(sorted);
+            this.terms = sorted.iterator();
+        }
+
+        @Override public boolean advance() {
+            if (!terms.hasNext()) return false;
+            term = terms.next();
+            return true;
+        }
+        @Override public String term() { return term; }
+        @Override public TermPostings postings() { return block.get(term).sortedDistinct(); }
+        @Override public void close() {}
+    }
+
+    private static final class FileRun implements PostingsRun {
+        private final DataInputStream in;
+        private int remaining;
+        private String term;
+        private TermPostings postings;
+
+        FileRun(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            this.remaining = in.readInt();
+        }
+
+        @Override public boolean advance() throws IOException {
+            if (remaining == 0) return false;
+            remaining--;
+            term = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+            int[] bookIds = new int[in.readInt()];
+            int[] frequencies = new int[bookIds.length];
+            for (int i = 0; i < bookIds.length; i++) {
+                bookIds[i] = in.readInt();
+                frequencies[i] = in.readInt();
+            }
+            postings = new TermPostings(bookIds, frequencies);
+            return true;
+        }
+        @Override public String term() { return term; }
+        @Override public TermPostings postings() { return postings; }
+        @Override public void close() throws IOException { in.close(); }
+    }
+
+    // (bookId, tf) pairs packed into one long so that sorting orders them by book id.
+    private static final class PostingList {
+        private long[] values = new long[2];
+        private int size;
+
+        void add(int bookId, int frequency) {
+            if (size == values.length) values = Arrays.copyOf(values, size << 1);
+            values[size++] = ((long) bookId << 32) | (frequency & 0xFFFFFFFFL);
+        }
+
+        TermPostings sortedDistinct() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int[] bookIds = new int[size];
+            int[] frequencies = new int[size];
+            int n = 0;
+            for (long value : sorted) {
+                int bookId = (int) (value >>> 32);
+                if (n > 0 && bookIds[n - 1] == bookId) n--;
+                bookIds[n] = bookId;
+                frequencies[n++] = (int) value;
+            }
+            return n == size ? new TermPostings(bookIds, frequencies)
+                    : new TermPostings(Arrays.copyOf(bookIds, n), Arrays.copyOf(frequencies, n));
+        }
+    }
+}
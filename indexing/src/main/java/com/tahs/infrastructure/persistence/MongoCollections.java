@@ -0,0 +1,30 @@
+package com.tahs.infrastructure.persistence;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.bson.Document;
+
+final class MongoCollections {
+    private MongoCollections() {
+    }
+
+    // renameCollection with dropTarget: readers of `target` see either the old or the new
+    // collection, never a missing or partly written one.
+    static void replace(MongoCollection<Document> source, String databaseName, String target) {
+        source.renameCollection(new MongoNamespace(databaseName, target),
+                new RenameCollectionOptions().dropTarget(true));
+    }
+
+    // Secondary indexes created by other services (e.g. search's filter indexes) have to exist
+    // on a shadow collection before it replaces the live one.
+    static void copyIndexes(MongoCollection<Document> from, MongoCollection<Document> to) {
+        for (Document index : from.listIndexes()) {
+            String name = index.getString("name");
+            if ("_id_".equals(name)) continue;
+            var options = new IndexOptions().name(name).unique(index.getBoolean("unique", false));
+            to.createIndex(index.get("key", Document.class), options);
+        }
+    }
+}
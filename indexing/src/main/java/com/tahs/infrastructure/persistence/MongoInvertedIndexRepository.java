@@ -1,102 +1,593 @@
 package com.tahs.infrastructure.persistence;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.application.ports.Shadow;
 import com.tahs.domain.IndexStats;
+import com.tahs.domain.TermFrequencies;
+import com.tahs.domain.TermPostings;
 import org.bson.Document;
-import org.bson.types.ObjectId;
-import com.mongodb.client.MongoCursor;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
 
-import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
 
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.in;
 
 public class MongoInvertedIndexRepository implements InvertedIndexRepository {
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_FLUSH_PARALLELISM = 4;
+    private static final String BINARY_POSTINGS = "postings_bin";
+    private static final String BINARY_FREQUENCIES = "tf_bin";
+    private static final String FREQUENCIES = "tfs";
+    // Lets readers (the search replica) poll for buckets changed since a point in time.
+    private static final String UPDATED_AT = "updated_at";
+    // Postings are split into one document per (term, bucket), bucket = bookId / BUCKET_SPAN,
+    // so $addToSet on a hot term only ever touches an array of at most BUCKET_SPAN ids.
+    static final int BUCKET_SPAN = 4096;
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static final String LENGTHS_SUFFIX = "_lengths";
+    private static final String SHADOW_SUFFIX = "_rebuild";
+    // Per-term document frequencies ({_id: term, df}) and one document of collection-wide counters.
+    private static final String TERMS_SUFFIX = "_terms";
+    private static final String COUNTERS_SUFFIX = "_stats";
+    private static final String COUNTERS_ID = "collection";
+    private static final int BOOK_LOCK_STRIPES = 64;
+
     private final MongoDatabase database;
     private final MongoCollection<Document> collection;
-    private final Map<String, List<Integer>> index = new HashMap<>();
+    private final MongoCollection<Document> lengths;
+    private final MongoCollection<Document> termCounts;
+    private final MongoCollection<Document> counters;
+    // Books with a stored length; a book only counts towards `books` the first time it is indexed.
+    private final BitSet indexedBooks;
+    // Writes of the same book are serialized, so checking what is stored, writing and counting
+    // the difference never interleave. Stripes are always taken in ascending order.
+    private final ReentrantLock[] bookLocks = new ReentrantLock[BOOK_LOCK_STRIPES];
     private final String collectionName;
     private final String databaseName;
+    private final int batchSize;
+    private final ExecutorService flushExecutor;
 
     public MongoInvertedIndexRepository(MongoClient mongoClient, String databaseName, String collectionName) {
-        this.databaseName = databaseName;
+        this(mongoClient, databaseName, collectionName, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_PARALLELISM);
+    }
+
+    public MongoInvertedIndexRepository(MongoClient mongoClient, String databaseName, String collectionName,
+                                        int batchSize, int flushParallelism) {
+        this(mongoClient.getDatabase(databaseName), collectionName, batchSize, flushPool(flushParallelism));
+    }
+
+    private MongoInvertedIndexRepository(MongoDatabase database, String collectionName, int batchSize,
+                                         ExecutorService flushExecutor) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be > 0");
+        this.databaseName = database.getName();
         this.collectionName = collectionName;
-        this.database = mongoClient.getDatabase(databaseName);
+        this.database = database;
         this.collection = this.database.getCollection(collectionName);
+        this.lengths = this.database.getCollection(collectionName + LENGTHS_SUFFIX);
+        this.termCounts = this.database.getCollection(collectionName + TERMS_SUFFIX);
+        this.counters = this.database.getCollection(collectionName + COUNTERS_SUFFIX);
+        this.batchSize = batchSize;
+        this.flushExecutor = flushExecutor;
+        this.indexedBooks = loadIndexedBooks();
+        for (int i = 0; i < bookLocks.length; i++) bookLocks[i] = new ReentrantLock();
+        createIndexes();
+    }
+
+    private static ExecutorService flushPool(int flushParallelism) {
+        if (flushParallelism <= 0) throw new IllegalArgumentException("flushParallelism must be > 0");
+        return Executors.newFixedThreadPool(flushParallelism, daemonThreads("index-flush"));
     }
 
     @Override
-    public boolean indexBook(String bookId, Set<String> terms) {
-        for( String term : terms){
-            var filter = eq("term", term);
+    public boolean indexBook(String bookId, TermFrequencies terms) {
+        int id = Integer.parseInt(bookId);
+        List<ReentrantLock> locked = lockBooks(IntStream.of(id));
+        try {
+            writeBook(bookId, terms);
+        } finally {
+            unlock(locked);
+        }
+        return true;
+    }
+
+    private void writeBook(String bookId, TermFrequencies terms) {
+        int id = Integer.parseInt(bookId);
+        int bucket = bucketOf(id);
+        Map<String, StoredBucket> stored = findStoredBuckets(terms.terms(), Set.of(bucket));
+        PostingWrites writes = new PostingWrites();
+        for (var entry : terms.counts().entrySet()) {
+            String term = entry.getKey();
             var update = Updates.combine(
-                    Updates.setOnInsert("term", term),
-                    Updates.addToSet("postings", bookId)
+                    Updates.addToSet("postings", bookId),
+                    Updates.set(FREQUENCIES + "." + bookId, entry.getValue()),
+                    Updates.currentDate(UPDATED_AT)
             );
-            collection.updateOne(filter, update, new UpdateOptions().upsert(true));
+            boolean added = !stored.getOrDefault(bucketKey(term, bucket), StoredBucket.EMPTY).contains(id);
+            writes.add(term, added ? 1 : 0, new UpdateOneModel<>(bucketFilter(term, bucket), update, UPSERT));
         }
-        return false;
+        BulkOutcome outcome = writeInBatches(collection, "Book " + bookId, writes.models());
+        System.out.println("Book " + bookId + " indexed: " + writes.size() + " terms, " + outcome.upserted() + " new buckets");
+        countPostings(writes.appliedByTerm(outcome));
+        outcome.throwIfFailed();
+        indexDocumentLengths(Map.of(id, terms.length()));
     }
 
     @Override
-    public void deleteAll() {
-        this.collection.drop();
+    public void indexBatch(Map<String, TermPostings> postingsByTerm) {
+        List<ReentrantLock> locked = lockBooks(bookIdsOf(postingsByTerm));
+        try {
+            writeBatch(postingsByTerm);
+        } finally {
+            unlock(locked);
+        }
+    }
+
+    private void writeBatch(Map<String, TermPostings> postingsByTerm) {
+        Map<String, StoredBucket> stored = findStoredBuckets(postingsByTerm.keySet(), bucketsOf(postingsByTerm));
+        PostingWrites writes = new PostingWrites();
+        for (var entry : postingsByTerm.entrySet()) {
+            TermPostings postings = entry.getValue();
+            int[] bookIds = postings.bookIds();
+            for (int from = 0; from < bookIds.length; ) {
+                int bucket = bucketOf(bookIds[from]);
+                StoredBucket current = stored.getOrDefault(bucketKey(entry.getKey(), bucket), StoredBucket.EMPTY);
+                List<String> bucketIds = new ArrayList<>();
+                List<Bson> updates = new ArrayList<>();
+                int added = 0;
+                while (from < bookIds.length && bucketOf(bookIds[from]) == bucket) {
+                    String bookId = Integer.toString(bookIds[from]);
+                    if (!current.contains(bookIds[from])) added++;
+                    bucketIds.add(bookId);
+                    updates.add(Updates.set(FREQUENCIES + "." + bookId, postings.frequencies()[from]));
+                    from++;
+                }
+                updates.add(Updates.addEachToSet("postings", bucketIds));
+                updates.add(Updates.currentDate(UPDATED_AT));
+                writes.add(entry.getKey(), added,
+                        new UpdateOneModel<>(bucketFilter(entry.getKey(), bucket), Updates.combine(updates), UPSERT));
+            }
+        }
+        BulkOutcome outcome = writeInBatches(collection, "Batch", writes.models());
+        System.out.println("Batch indexed: " + postingsByTerm.size() + " terms, " + writes.size() + " bucket writes, "
+                + outcome.upserted() + " new buckets");
+        countPostings(writes.appliedByTerm(outcome));
+        outcome.throwIfFailed();
     }
 
     @Override
-    public IndexStats getStats() {
-        var collStats = database.runCommand(new Document("collStats", collectionName).append("scale", ScaleToMB()));
-        double storageMB = toDouble(collStats.get("storageSize"));
-        double indexesMB = toDouble(collStats.get("totalIndexSize"));
-        double sizeMB = storageMB + indexesMB;
-        MongoCollection<Document> coll = database.getCollection(collectionName);
-        Instant lastUpdate = getLastUpdateFromUpdatedAt(coll);
-        if (lastUpdate == null) {
-            lastUpdate = getLastInsertFromObjectId(coll);
+    public void indexPostings(Map<String, TermPostings> postingsByTerm) {
+        List<ReentrantLock> locked = lockBooks(bookIdsOf(postingsByTerm));
+        try {
+            writePostings(postingsByTerm);
+        } finally {
+            unlock(locked);
         }
-        return new IndexStats(sizeMB, lastUpdate);
+    }
 
+    private void writePostings(Map<String, TermPostings> postingsByTerm) {
+        Map<String, StoredBucket> stored = findStoredBuckets(postingsByTerm.keySet(), bucketsOf(postingsByTerm));
+        PostingWrites writes = new PostingWrites();
+        for (var entry : postingsByTerm.entrySet()) {
+            TermPostings postings = entry.getValue();
+            int[] bookIds = postings.bookIds();
+            for (int from = 0; from < bookIds.length; ) {
+                int bucket = bucketOf(bookIds[from]);
+                StoredBucket current = stored.getOrDefault(bucketKey(entry.getKey(), bucket), StoredBucket.EMPTY);
+                int added = 0;
+                int to = from;
+                while (to < bookIds.length && bucketOf(bookIds[to]) == bucket) {
+                    if (!current.contains(bookIds[to])) added++;
+                    to++;
+                }
+                TermPostings merged = TermPostings.union(current.binary(), postings.slice(from, to));
+                var update = Updates.combine(
+                        Updates.set(BINARY_POSTINGS, new Binary(PostingsCodec.encode(merged.bookIds()))),
+                        Updates.set(BINARY_FREQUENCIES, new Binary(PostingsCodec.encodeFrequencies(merged.frequencies()))),
+                        Updates.currentDate(UPDATED_AT)
+                );
+                writes.add(entry.getKey(), added, new UpdateOneModel<>(bucketFilter(entry.getKey(), bucket), update, UPSERT));
+                from = to;
+            }
+        }
+        BulkOutcome outcome = writeInBatches(collection, "Postings load", writes.models());
+        System.out.println("Postings load: " + postingsByTerm.size() + " terms, " + writes.size() + " bucket writes, "
+                + outcome.upserted() + " new buckets");
+        countPostings(writes.appliedByTerm(outcome));
+        outcome.throwIfFailed();
     }
-    private static double toDouble(Object number) {
-        return number instanceof Number ? ((Number) number).doubleValue() : 0.0;
+
+    @Override
+    public void indexDocumentLengths(Map<Integer, Integer> lengthsByBook) {
+        if (lengthsByBook.isEmpty()) return;
+        List<ReentrantLock> locked = lockBooks(lengthsByBook.keySet().stream().mapToInt(Integer::intValue));
+        try {
+            writeDocumentLengths(lengthsByBook);
+        } finally {
+            unlock(locked);
+        }
     }
 
-    private static int ScaleToMB() {
-        return 1024 * 1024;
+    // Bits are claimed before the write and released again for every new book whose write failed;
+    // the counters only take the books whose length was written.
+    private void writeDocumentLengths(Map<Integer, Integer> lengthsByBook) {
+        Set<Integer> reindexed = new HashSet<>();
+        List<Integer> claimed = new ArrayList<>();
+        synchronized (indexedBooks) {
+            for (int bookId : lengthsByBook.keySet()) {
+                if (bookId < 0) continue;
+                if (indexedBooks.get(bookId)) {
+                    reindexed.add(bookId);
+                } else {
+                    indexedBooks.set(bookId);
+                    claimed.add(bookId);
+                }
+            }
+        }
+        Map<Integer, Integer> replaced = new HashMap<>();
+        List<Integer> books = new ArrayList<>(lengthsByBook.keySet());
+        List<WriteModel<Document>> writes = new ArrayList<>(books.size());
+        BulkOutcome outcome;
+        try {
+            if (!reindexed.isEmpty()) {
+                var previous = lengths.find(in("book_id", reindexed)).projection(Projections.include("book_id", "length"));
+                for (Document document : previous) {
+                    replaced.put(document.getInteger("book_id"), document.getInteger("length", 0));
+                }
+            }
+            for (int bookId : books) {
+                writes.add(new UpdateOneModel<>(eq("book_id", bookId), Updates.set("length", lengthsByBook.get(bookId)), UPSERT));
+            }
+            outcome = writeInBatches(lengths, "Document lengths", writes);
+        } catch (RuntimeException e) {
+            release(claimed);
+            throw e;
+        }
+
+        List<Integer> failed = new ArrayList<>();
+        long newBooks = 0;
+        long totalLength = 0;
+        for (int i = 0; i < books.size(); i++) {
+            int bookId = books.get(i);
+            if (!outcome.applied(i)) {
+                if (!reindexed.contains(bookId)) failed.add(bookId);
+                continue;
+            }
+            if (!reindexed.contains(bookId)) newBooks++;
+            totalLength += lengthsByBook.get(bookId) - replaced.getOrDefault(bookId, 0);
+        }
+        release(failed);
+        incrementCounters(Updates.inc("books", newBooks), Updates.inc("total_length", totalLength));
+        outcome.throwIfFailed();
+    }
+
+    private void release(List<Integer> bookIds) {
+        if (bookIds.isEmpty()) return;
+        synchronized (indexedBooks) {
+            for (int bookId : bookIds) if (bookId >= 0) indexedBooks.clear(bookId);
+        }
+    }
+
+    // $inc on each term's df; an upsert means the term is new to the index.
+    private void countPostings(Map<String, Integer> addedByTerm) {
+        if (addedByTerm.isEmpty()) return;
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(addedByTerm.entrySet());
+        List<WriteModel<Document>> writes = new ArrayList<>(entries.size());
+        for (var entry : entries) {
+            writes.add(new UpdateOneModel<>(eq("_id", entry.getKey()), Updates.inc("df", entry.getValue()), UPSERT));
+        }
+        BulkOutcome outcome = writeInBatches(termCounts, "Term counts", writes);
+        long postings = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            if (outcome.applied(i)) postings += entries.get(i).getValue();
+        }
+        incrementCounters(Updates.inc("postings", postings), Updates.inc("terms", (long) outcome.upserted()));
+        outcome.throwIfFailed();
+    }
+
+    private void incrementCounters(Bson... increments) {
+        List<Bson> updates = new ArrayList<>(Arrays.asList(increments));
+        updates.add(Updates.inc("generation", 1L));
+        updates.add(Updates.currentDate(UPDATED_AT));
+        counters.updateOne(eq("_id", COUNTERS_ID), Updates.combine(updates), UPSERT);
     }
 
-    private static Instant getLastUpdateFromUpdatedAt(MongoCollection<Document> coll) {
-        try (MongoCursor<Document> cursor = coll.aggregate(Arrays.asList(
-                new Document("$group", new Document("_id", null)
-                        .append("last", new Document("$max", "$updated_at")))
-        )).iterator()) {
-            if (cursor.hasNext()) {
-                Date d = cursor.next().getDate("last");
-                return d != null ? d.toInstant() : null;
+    private List<ReentrantLock> lockBooks(IntStream bookIds) {
+        boolean[] stripes = new boolean[bookLocks.length];
+        bookIds.forEach(bookId -> stripes[Math.floorMod(bookId, bookLocks.length)] = true);
+        List<ReentrantLock> locked = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            if (!stripes[i]) continue;
+            bookLocks[i].lock();
+            locked.add(bookLocks[i]);
+        }
+        return locked;
+    }
+
+    private static void unlock(List<ReentrantLock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) locked.get(i).unlock();
+    }
+
+    private static IntStream bookIdsOf(Map<String, TermPostings> postingsByTerm) {
+        return postingsByTerm.values().stream().flatMapToInt(postings -> IntStream.of(postings.bookIds()));
+    }
+
+    private BitSet loadIndexedBooks() {
+        BitSet books = new BitSet();
+        for (Document document : lengths.find().projection(Projections.include("book_id"))) {
+            Integer bookId = document.getInteger("book_id");
+            if (bookId != null && bookId >= 0) books.set(bookId);
+        }
+        return books;
+    }
+
+    // A bucket's books are the union of its binary postings (bulk loads) and its postings array
+    // (per-book and batch updates); the binary part is kept with frequencies for merging.
+    private record StoredBucket(TermPostings binary, int[] members) {
+        static final StoredBucket EMPTY = new StoredBucket(TermPostings.EMPTY, new int[0]);
+
+        boolean contains(int bookId) {
+            return Arrays.binarySearch(members, bookId) >= 0;
+        }
+    }
+
+    private Map<String, StoredBucket> findStoredBuckets(Collection<String> terms, Set<Integer> buckets) {
+        Map<String, StoredBucket> stored = new HashMap<>();
+        if (terms.isEmpty()) return stored;
+        var documents = collection.find(and(in("term", terms), in("bucket", buckets)))
+                .projection(Projections.include("term", "bucket", "postings", BINARY_POSTINGS, BINARY_FREQUENCIES));
+        for (Document document : documents) {
+            Integer bucket = document.getInteger("bucket");
+            if (bucket == null) continue;
+            TermPostings binary = TermPostings.EMPTY;
+            Binary ids = document.get(BINARY_POSTINGS, Binary.class);
+            if (ids != null) {
+                int[] bookIds = PostingsCodec.decode(ids.getData());
+                Binary frequencies = document.get(BINARY_FREQUENCIES, Binary.class);
+                int[] tfs = PostingsCodec.decodeFrequencies(frequencies != null ? frequencies.getData() : null, bookIds.length);
+                binary = new TermPostings(bookIds, tfs);
             }
+            List<String> listed = document.getList("postings", String.class, List.of());
+            int[] members = Arrays.copyOf(binary.bookIds(), binary.size() + listed.size());
+            int size = binary.size();
+            for (String bookId : listed) {
+                try {
+                    members[size++] = Integer.parseInt(bookId);
+                } catch (NumberFormatException e) {
+                    size--;
+                }
+            }
+            members = Arrays.copyOf(members, size);
+            Arrays.sort(members);
+            stored.put(bucketKey(document.getString("term"), bucket), new StoredBucket(binary, members));
         }
-        return null;
+        return stored;
     }
 
-    private static Instant getLastInsertFromObjectId(MongoCollection<Document> coll) {
-        Document newest = coll.find()
-                .sort(Sorts.descending("_id"))
-                .limit(1)
-                .first();
-        if (newest != null) {
-            ObjectId id = newest.getObjectId("_id");
-            if (id != null) {
-                return Instant.ofEpochSecond(id.getTimestamp());
+    private static Set<Integer> bucketsOf(Map<String, TermPostings> postingsByTerm) {
+        Set<Integer> buckets = new HashSet<>();
+        for (TermPostings postings : postingsByTerm.values()) {
+            for (int bookId : postings.bookIds()) buckets.add(bucketOf(bookId));
+        }
+        return buckets;
+    }
+
+    private static Bson bucketFilter(String term, int bucket) {
+        return and(eq("term", term), eq("bucket", bucket));
+    }
+
+    private static String bucketKey(String term, int bucket) {
+        return term + '\u0000' + bucket;
+    }
+
+    static int bucketOf(int bookId) {
+        return bookId / BUCKET_SPAN;
+    }
+
+    private void createIndexes() {
+        collection.createIndex(Indexes.ascending("term", "bucket"), new IndexOptions().unique(true));
+        collection.createIndex(Indexes.ascending(UPDATED_AT));
+        lengths.createIndex(Indexes.ascending("book_id"), new IndexOptions().unique(true));
+    }
+
+    // What a bulk write applied. Batches are unordered, so every write without an error was applied;
+    // a batch that failed as a whole (timeout, lost connection) counts every write in it as failed.
+    private record BulkOutcome(int upserted, BitSet failed, IllegalStateException error) {
+        boolean applied(int write) {
+            return !failed.get(write);
+        }
+
+        void throwIfFailed() {
+            if (error != null) throw error;
+        }
+    }
+
+    // Bucket writes, each with its term and the number of (term, book) postings it adds.
+    private static final class PostingWrites {
+        private final List<WriteModel<Document>> models = new ArrayList<>();
+        private final List<String> terms = new ArrayList<>();
+        private int[] added = new int[64];
+
+        void add(String term, int addedPostings, WriteModel<Document> model) {
+            if (models.size() == added.length) added = Arrays.copyOf(added, added.length << 1);
+            added[models.size()] = addedPostings;
+            terms.add(term);
+            models.add(model);
+        }
+
+        List<WriteModel<Document>> models() {
+            return models;
+        }
+
+        int size() {
+            return models.size();
+        }
+
+        Map<String, Integer> appliedByTerm(BulkOutcome outcome) {
+            Map<String, Integer> applied = new HashMap<>();
+            for (int i = 0; i < models.size(); i++) {
+                if (added[i] > 0 && outcome.applied(i)) applied.merge(terms.get(i), added[i], Integer::sum);
+            }
+            return applied;
+        }
+    }
+
+    // Silent on success (callers log one summary line). Waits for every batch, even after a failure,
+    // so that counters can be derived from what was applied; the caller rethrows the first error.
+    private BulkOutcome writeInBatches(MongoCollection<Document> target, String label, List<WriteModel<Document>> writes) {
+        BitSet failed = new BitSet();
+        if (writes.isEmpty()) return new BulkOutcome(0, failed, null);
+
+        List<Future<BulkWriteResult>> pending = new ArrayList<>();
+        for (int from = 0; from < writes.size(); from += batchSize) {
+            pending.add(flush(target, writes.subList(from, Math.min(from + batchSize, writes.size()))));
+        }
+
+        int upserted = 0;
+        IllegalStateException error = null;
+        for (int i = 0; i < pending.size(); i++) {
+            int from = i * batchSize;
+            try {
+                upserted += await(pending.get(i)).getUpserts().size();
+            } catch (IllegalStateException e) {
+                System.out.println(label + " batch " + (i + 1) + "/" + pending.size() + " failed: " + e.getMessage());
+                if (e.getCause() instanceof MongoBulkWriteException bulk) {
+                    upserted += bulk.getWriteResult().getUpserts().size();
+                    for (BulkWriteError writeError : bulk.getWriteErrors()) failed.set(from + writeError.getIndex());
+                } else {
+                    failed.set(from, Math.min(from + batchSize, writes.size()));
+                }
+                if (error == null) error = e;
             }
         }
-        return null;
+        return new BulkOutcome(upserted, failed, error);
+    }
+
+    private Future<BulkWriteResult> flush(MongoCollection<Document> target, List<WriteModel<Document>> batch) {
+        return flushExecutor.submit(() -> target.bulkWrite(batch, UNORDERED));
+    }
+
+    private static BulkWriteResult await(Future<BulkWriteResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while flushing index batch", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Index batch failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void deleteAll() {
+        this.collection.drop();
+        this.lengths.drop();
+        this.termCounts.drop();
+        this.counters.drop();
+        synchronized (indexedBooks) {
+            indexedBooks.clear();
+        }
+        createIndexes();
+    }
+
+    // The shadow's collections are renamed over the live ones with dropTarget, which MongoDB does
+    // atomically per collection; lengths go first so new postings never see the old lengths.
+    // The live repository then takes over the shadow's set of indexed books.
+    @Override
+    public Shadow<InvertedIndexRepository> openShadow() {
+        String shadowName = collectionName + SHADOW_SUFFIX;
+        database.getCollection(shadowName).drop();
+        database.getCollection(shadowName + LENGTHS_SUFFIX).drop();
+        database.getCollection(shadowName + TERMS_SUFFIX).drop();
+        database.getCollection(shadowName + COUNTERS_SUFFIX).drop();
+        var shadow = new MongoInvertedIndexRepository(database, shadowName, batchSize, flushExecutor);
+        return new Shadow<>() {
+            @Override
+            public InvertedIndexRepository repository() {
+                return shadow;
+            }
+
+            @Override
+            public void publish() {
+                MongoCollections.replace(shadow.lengths, databaseName, collectionName + LENGTHS_SUFFIX);
+                MongoCollections.replace(shadow.termCounts, databaseName, collectionName + TERMS_SUFFIX);
+                MongoCollections.replace(shadow.counters, databaseName, collectionName + COUNTERS_SUFFIX);
+                MongoCollections.replace(shadow.collection, databaseName, collectionName);
+                synchronized (indexedBooks) {
+                    indexedBooks.clear();
+                    synchronized (shadow.indexedBooks) {
+                        indexedBooks.or(shadow.indexedBooks);
+                    }
+                }
+                System.out.println("Index " + shadowName + " swapped in as " + collectionName);
+            }
+
+            @Override
+            public void discard() {
+                shadow.collection.drop();
+                shadow.lengths.drop();
+                shadow.termCounts.drop();
+                shadow.counters.drop();
+            }
+        };
+    }
+
+    // Size comes from collStats; everything else is the counters document, maintained on write.
+    @Override
+    public IndexStats getStats() {
+        var collStats = database.runCommand(new Document("collStats", collectionName).append("scale", ScaleToMB()));
+        double storageMB = toDouble(collStats.get("storageSize"));
+        double indexesMB = toDouble(collStats.get("totalIndexSize"));
+        double sizeMB = storageMB + indexesMB;
+        Document current = counters.find(eq("_id", COUNTERS_ID)).first();
+        if (current == null) return new IndexStats(sizeMB, null, 0, 0, 0, 0, 0);
+        long books = (long) toDouble(current.get("books"));
+        double totalLength = toDouble(current.get("total_length"));
+        Date updatedAt = current.getDate(UPDATED_AT);
+        return new IndexStats(sizeMB, updatedAt != null ? updatedAt.toInstant() : null, books,
+                (long) toDouble(current.get("terms")), (long) toDouble(current.get("postings")),
+                books > 0 ? totalLength / books : 0, (long) toDouble(current.get("generation")));
     }
 
+    private static double toDouble(Object number) {
+        return number instanceof Number ? ((Number) number).doubleValue() : 0.0;
+    }
 
+    private static int ScaleToMB() {
+        return 1024 * 1024;
+    }
 }
@@ -3,7 +3,11 @@ package com.tahs.infrastructure.persistence;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOptions;
 import com.tahs.application.ports.MetadataRepository;
+import com.tahs.application.ports.Shadow;
 import com.tahs.domain.Book;
 import org.bson.Document;
 
@@ -12,20 +16,29 @@ import java.util.List;
 import java.util.Map;
 
 public class MongoMetadataRepository implements MetadataRepository {
+    private static final String SHADOW_SUFFIX = "_rebuild";
 
     private final MongoDatabase database;
     private final MongoCollection<Document> collection;
+    private final String collectionName;
 
     public MongoMetadataRepository(MongoClient mongoClient, String databaseName, String collectionName) {
-        this.database = mongoClient.getDatabase(databaseName);
+        this(mongoClient.getDatabase(databaseName), collectionName);
+    }
+
+    private MongoMetadataRepository(MongoDatabase database, String collectionName) {
+        this.database = database;
         this.collection = this.database.getCollection(collectionName);
+        this.collectionName = collectionName;
+        this.collection.createIndex(Indexes.ascending("book_id"));
     }
 
     @Override
     public void save(Book book) {
         Map<String, Object> map = book.toDict();
         Document doc = new Document(map);
-        this.collection.insertOne(doc);
+        // One document per book, so re-indexing a book does not inflate the count.
+        this.collection.replaceOne(Filters.eq("book_id", book.getBookId()), doc, new ReplaceOptions().upsert(true));
          System.out.println("Book " + book.getBookId() + " saved in MongoDB");
     }
 
@@ -34,6 +47,37 @@ public class MongoMetadataRepository implements MetadataRepository {
         this.collection.drop();
     }
 
+    @Override
+    public Shadow<MetadataRepository> openShadow() {
+        String shadowName = collectionName + SHADOW_SUFFIX;
+        database.getCollection(shadowName).drop();
+        var shadow = new MongoMetadataRepository(database, shadowName);
+        MongoCollections.copyIndexes(collection, shadow.collection);
+        return new Shadow<>() {
+            @Override
+            public MetadataRepository repository() {
+                return shadow;
+            }
+
+            @Override
+            public void publish() {
+                MongoCollections.replace(shadow.collection, database.getName(), collectionName);
+                System.out.println("Metadata " + shadowName + " swapped in as " + collectionName);
+            }
+
+            @Override
+            public void discard() {
+                shadow.collection.drop();
+            }
+        };
+    }
+
+    // Read from collection metadata, not by counting documents.
+    @Override
+    public long count() {
+        return this.collection.estimatedDocumentCount();
+    }
+
     @Override
     public List<Book> getAll() {
         List<Book> books = new ArrayList<>();
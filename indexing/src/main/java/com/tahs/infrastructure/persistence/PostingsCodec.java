@@ -0,0 +1,175 @@
+package com.tahs.infrastructure.persistence;
+
+import java.util.Arrays;
+
+// Binary postings: one tag byte, varint count, then either varint deltas between sorted
+// book ids or, when that is larger, a varint base followed by a little-endian bitmap.
+public final class PostingsCodec {
+    static final byte DELTA_VARINT = 1;
+    static final byte BITMAP = 2;
+    private static final int[] EMPTY = new int[0];
+
+    private PostingsCodec() {
+    }
+
+    public static byte[] encode(int[] sortedIds) {
+        if (sortedIds.length == 0) return new byte[]{DELTA_VARINT, 0};
+
+        int deltaBytes = varintSize(sortedIds.length) + varintSize(sortedIds[0]);
+        for (int i = 1; i < sortedIds.length; i++) {
+            deltaBytes += varintSize(sortedIds[i] - sortedIds[i - 1]);
+        }
+        int base = sortedIds[0] & ~63;
+        int words = ((sortedIds[sortedIds.length - 1] - base) >>> 6) + 1;
+        long bitmapBytes = varintSize(sortedIds.length) + varintSize(base) + varintSize(words) + 8L * words;
+
+        if (bitmapBytes < deltaBytes) {
+            Writer out = new Writer((int) bitmapBytes + 1);
+            out.put(BITMAP);
+            out.varint(sortedIds.length);
+            out.varint(base);
+            out.varint(words);
+            long[] bits = new long[words];
+            for (int id : sortedIds) {
+                int offset = id - base;
+                bits[offset >>> 6] |= 1L << (offset & 63);
+            }
+            for (long word : bits) out.longLE(word);
+            return out.bytes;
+        }
+
+        Writer out = new Writer(deltaBytes + 1);
+        out.put(DELTA_VARINT);
+        out.varint(sortedIds.length);
+        out.varint(sortedIds[0]);
+        for (int i = 1; i < sortedIds.length; i++) {
+            out.varint(sortedIds[i] - sortedIds[i - 1]);
+        }
+        return out.bytes;
+    }
+
+    public static int[] decode(byte[] data) {
+        if (data == null || data.length == 0) return EMPTY;
+        Reader in = new Reader(data);
+        byte tag = in.get();
+        int count = in.varint();
+        int[] ids = new int[count];
+        if (tag == DELTA_VARINT) {
+            int id = 0;
+            for (int i = 0; i < count; i++) {
+                id += in.varint();
+                ids[i] = id;
+            }
+        } else if (tag == BITMAP) {
+            int base = in.varint();
+            int words = in.varint();
+            int n = 0;
+            for (int w = 0; w < words; w++) {
+                long word = in.longLE();
+                while (word != 0) {
+                    ids[n++] = base + (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown postings encoding: " + tag);
+        }
+        return ids;
+    }
+
+    // Term frequencies are stored separately, as plain varints in postings order.
+    public static byte[] encodeFrequencies(int[] frequencies) {
+        int bytes = 0;
+        for (int tf : frequencies) bytes += varintSize(tf);
+        Writer out = new Writer(bytes);
+        for (int tf : frequencies) out.varint(tf);
+        return out.bytes;
+    }
+
+    public static int[] decodeFrequencies(byte[] data, int count) {
+        int[] frequencies = new int[count];
+        if (data == null) {
+            Arrays.fill(frequencies, 1);
+            return frequencies;
+        }
+        Reader in = new Reader(data);
+        for (int i = 0; i < count; i++) frequencies[i] = in.varint();
+        return frequencies;
+    }
+
+    public static int[] union(int[] a, int[] b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) out[n++] = a[i++];
+            else if (a[i] > b[j]) out[n++] = b[j++];
+            else { out[n++] = a[i++]; j++; }
+        }
+        while (i < a.length) out[n++] = a[i++];
+        while (j < b.length) out[n++] = b[j++];
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static int varintSize(int value) {
+        return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    private static final class Writer {
+        private final byte[] bytes;
+        private int position;
+
+        Writer(int size) {
+            this.bytes = new byte[size];
+        }
+
+        void put(byte b) {
+            bytes[position++] = b;
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+        }
+
+        void longLE(long value) {
+            for (int i = 0; i < 8; i++) {
+                bytes[position++] = (byte) (value >>> (i << 3));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte get() {
+            return bytes[position++];
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+
+        long longLE() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (bytes[position++] & 0xFFL) << (i << 3);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.tahs.infrastructure.persistence.segments;
+
+import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.application.ports.Shadow;
+import com.tahs.domain.IndexStats;
+import com.tahs.domain.TermFrequencies;
+import com.tahs.domain.TermPostings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Embedded alternative to MongoInvertedIndexRepository: every write becomes one immutable
+// segment (sorted term dictionary + postings + document lengths) in `directory`, published by
+// appending it to the MANIFEST. A background thread merges runs of `mergeFactor` adjacent
+// segments of the same size level, so a lookup touches O(mergeFactor * levels) segments.
+// One indexing process owns a directory; search processes only read it.
+public class SegmentInvertedIndexRepository implements InvertedIndexRepository {
+    // Segments under this size share level 0; each level above holds mergeFactor times more.
+    private static final long LEVEL_BASE_BYTES = 1L << 20;
+    // Runs that would produce a larger segment are left unmerged, keeping every file well under
+    // the 2 GB a single mapped buffer can address.
+    private static final long MAX_MERGED_BYTES = 1L << 30;
+
+    private final Path directory;
+    private final int mergeFactor;
+    private final AtomicLong nextSegment = new AtomicLong();
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    private final ExecutorService merger;
+    private SegmentManifest manifest;
+
+    public SegmentInvertedIndexRepository(Path directory, int mergeFactor) {
+        if (mergeFactor < 2) throw new IllegalArgumentException("mergeFactor must be >= 2");
+        this.directory = directory;
+        this.mergeFactor = mergeFactor;
+        this.merger = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Files.createDirectories(directory);
+            this.manifest = SegmentManifest.read(directory);
+            removeUnlistedSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open index directory " + directory, e);
+        }
+        System.out.println("Segment index at " + directory.toAbsolutePath() + ": "
+                + manifest.segments().size() + " segments");
+        scheduleMerge();
+    }
+
+    @Override
+    public boolean indexBook(String bookId, TermFrequencies terms) {
+        writeSegment(bookPostings(bookId, terms), Map.of(Integer.parseInt(bookId), terms.length()));
+        return true;
+    }
+
+    @Override
+    public void indexPostings(Map<String, TermPostings> postingsByTerm) {
+        writeSegment(new TreeMap<>(postingsByTerm), Map.of());
+    }
+
+    // Segments are unioned on read, so the additive batch path is the same as a postings load.
+    @Override
+    public void indexBatch(Map<String, TermPostings> postingsByTerm) {
+        writeSegment(new TreeMap<>(postingsByTerm), Map.of());
+    }
+
+    @Override
+    public void indexDocumentLengths(Map<Integer, Integer> lengthsByBook) {
+        writeSegment(new TreeMap<>(), lengthsByBook);
+    }
+
+    @Override
+    public void deleteAll() {
+        List<SegmentManifest.Entry> removed;
+        synchronized (this) {
+            removed = manifest.segments();
+            writeManifest(manifest.with(List.of()));
+        }
+        deleteFiles(removed);
+    }
+
+    @Override
+    public IndexStats getStats() {
+        SegmentManifest current;
+        synchronized (this) {
+            current = manifest;
+        }
+        return stats(current.segments(), current.generation());
+    }
+
+    // Sums of the per-segment counts in the MANIFEST. A term or book present in several segments
+    // is counted once per segment, so until those segments are merged the counts are upper bounds.
+    private static IndexStats stats(List<SegmentManifest.Entry> segments, long generation) {
+        long bytes = 0, terms = 0, postings = 0, books = 0, totalLength = 0, lastUpdate = -1;
+        for (SegmentManifest.Entry segment : segments) {
+            bytes += segment.bytes();
+            terms += segment.terms();
+            postings += segment.postings();
+            books += segment.books();
+            totalLength += segment.totalLength();
+            lastUpdate = Math.max(lastUpdate, segment.createdAtMillis());
+        }
+        return new IndexStats(bytes / (1024.0 * 1024.0), lastUpdate >= 0 ? Instant.ofEpochMilli(lastUpdate) : null,
+                books, terms, postings, books > 0 ? (double) totalLength / books : 0, generation);
+    }
+
+    // Shadow segments are written to the same directory but stay out of the MANIFEST until
+    // publish() makes them the whole segment list in one manifest replace.
+    @Override
+    public Shadow<InvertedIndexRepository> openShadow() {
+        ShadowSegments shadow = new ShadowSegments();
+        return new Shadow<>() {
+            @Override
+            public InvertedIndexRepository repository() {
+                return shadow;
+            }
+
+            @Override
+            public void publish() {
+                List<SegmentManifest.Entry> replaced;
+                synchronized (SegmentInvertedIndexRepository.this) {
+                    replaced = manifest.segments();
+                    writeManifest(manifest.with(shadow.segments()));
+                }
+                deleteFiles(replaced);
+                System.out.println("Segment index swapped: " + shadow.segments().size() + " rebuilt segments live");
+                scheduleMerge();
+            }
+
+            @Override
+            public void discard() {
+                shadow.deleteAll();
+            }
+        };
+    }
+
+    private void writeSegment(SortedMap<String, TermPostings> postingsByTerm, Map<Integer, Integer> lengthsByBook) {
+        SegmentManifest.Entry segment = writeSegmentFiles(postingsByTerm, lengthsByBook);
+        if (segment == null) return;
+        synchronized (this) {
+            List<SegmentManifest.Entry> segments = new ArrayList<>(manifest.segments());
+            segments.add(segment);
+            writeManifest(manifest.with(segments));
+        }
+        scheduleMerge();
+    }
+
+    private SegmentManifest.Entry writeSegmentFiles(SortedMap<String, TermPostings> postingsByTerm,
+                                                    Map<Integer, Integer> lengthsByBook) {
+        if (postingsByTerm.isEmpty() && lengthsByBook.isEmpty()) return null;
+        String name = newSegmentName();
+        try (SegmentWriter writer = new SegmentWriter(directory, name)) {
+            for (var entry : postingsByTerm.entrySet()) writer.add(entry.getKey(), entry.getValue());
+            SegmentManifest.Entry segment = finish(writer, name, System.currentTimeMillis(), lengthsByBook);
+            System.out.println("Segment " + name + " written: " + segment.terms() + " terms, "
+                    + segment.books() + " lengths, " + segment.bytes() + " bytes");
+            return segment;
+        } catch (IOException e) {
+            deleteFiles(List.of(SegmentManifest.Entry.unpublished(name)));
+            throw new UncheckedIOException("Cannot write segment " + name, e);
+        }
+    }
+
+    private static SegmentManifest.Entry finish(SegmentWriter writer, String name, long createdAt,
+                                                Map<Integer, Integer> lengthsByBook) throws IOException {
+        long bytes = writer.finish(lengthsByBook);
+        long totalLength = lengthsByBook.values().stream().mapToLong(Integer::longValue).sum();
+        return new SegmentManifest.Entry(name, createdAt, bytes, writer.terms(), writer.postings(),
+                lengthsByBook.size(), totalLength);
+    }
+
+    private void scheduleMerge() {
+        if (mergeScheduled.compareAndSet(false, true)) {
+            merger.execute(() -> {
+                mergeScheduled.set(false);
+                try {
+                    List<SegmentManifest.Entry> run;
+                    while ((run = nextMergeRun()) != null) merge(run);
+                } catch (RuntimeException | IOException e) {
+                    System.out.println("Segment merge failed: " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    // First run of mergeFactor adjacent segments on the same level that fits MAX_MERGED_BYTES;
+    // adjacency keeps the newer-wins order intact when the merged segment takes the run's place.
+    private synchronized List<SegmentManifest.Entry> nextMergeRun() {
+        List<SegmentManifest.Entry> segments = manifest.segments();
+        for (int start = 0; start + mergeFactor <= segments.size(); start++) {
+            int level = level(segments.get(start).bytes());
+            int end = start + 1;
+            while (end < segments.size() && end - start < mergeFactor && level(segments.get(end).bytes()) == level) end++;
+            if (end - start < mergeFactor) continue;
+            List<SegmentManifest.Entry> run = segments.subList(start, end);
+            if (run.stream().mapToLong(SegmentManifest.Entry::bytes).sum() <= MAX_MERGED_BYTES) return List.copyOf(run);
+        }
+        return null;
+    }
+
+    private int level(long bytes) {
+        if (bytes < LEVEL_BASE_BYTES) return 0;
+        return 1 + (int) (Math.log((double) bytes / LEVEL_BASE_BYTES) / Math.log(mergeFactor));
+    }
+
+    private void merge(List<SegmentManifest.Entry> run) throws IOException {
+        long start = System.currentTimeMillis();
+        List<SegmentReader> readers = new ArrayList<>(run.size());
+        Map<Integer, Integer> lengths = new HashMap<>();
+        for (SegmentManifest.Entry segment : run) {
+            SegmentReader reader = SegmentReader.open(directory, segment.name());
+            reader.lengthsInto(lengths);
+            readers.add(reader);
+        }
+
+        String name = newSegmentName();
+        long createdAt = run.stream().mapToLong(SegmentManifest.Entry::createdAtMillis).max().orElse(0);
+        SegmentManifest.Entry output;
+        try (SegmentWriter writer = new SegmentWriter(directory, name)) {
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+            for (int i = 0; i < readers.size(); i++) {
+                Cursor cursor = new Cursor(readers.get(i), i);
+                if (cursor.advance()) cursors.add(cursor);
+            }
+            while (!cursors.isEmpty()) {
+                Cursor first = cursors.poll();
+                String term = first.term;
+                TermPostings merged = first.postings();
+                if (first.advance()) cursors.add(first);
+                while (!cursors.isEmpty() && cursors.peek().term.equals(term)) {
+                    Cursor next = cursors.poll();
+                    merged = TermPostings.union(merged, next.postings());
+                    if (next.advance()) cursors.add(next);
+                }
+                writer.add(term, merged);
+            }
+            output = finish(writer, name, createdAt, lengths);
+        } catch (IOException | RuntimeException e) {
+            deleteFiles(List.of(SegmentManifest.Entry.unpublished(name)));
+            throw e;
+        }
+
+        boolean published;
+        synchronized (this) {
+            List<SegmentManifest.Entry> segments = new ArrayList<>(manifest.segments());
+            int at = segments.indexOf(run.get(0));
+            published = at >= 0 && at + run.size() <= segments.size()
+                    && segments.subList(at, at + run.size()).equals(run);
+            if (published) {
+                segments.subList(at, at + run.size()).clear();
+                segments.add(at, output);
+                writeManifest(manifest.with(segments));
+            }
+        }
+        // A concurrent deleteAll() dropped the inputs, so the merged output is discarded too.
+        deleteFiles(published ? run : List.of(SegmentManifest.Entry.unpublished(name)));
+        if (published) {
+            System.out.println("Merged " + run.size() + " segments into " + name + " (" + output.bytes() + " bytes) in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    private void writeManifest(SegmentManifest next) {
+        try {
+            next.write(directory);
+            manifest = next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write segment manifest", e);
+        }
+    }
+
+    private static SortedMap<String, TermPostings> bookPostings(String bookId, TermFrequencies terms) {
+        int id = Integer.parseInt(bookId);
+        SortedMap<String, TermPostings> postings = new TreeMap<>();
+        for (var entry : terms.counts().entrySet()) {
+            postings.put(entry.getKey(), new TermPostings(new int[]{id}, new int[]{entry.getValue()}));
+        }
+        return postings;
+    }
+
+    private String newSegmentName() {
+        return String.format("seg-%012d", nextSegment.incrementAndGet());
+    }
+
+    // Drops files left behind by a crash between writing a segment and publishing it, and
+    // continues numbering after the highest segment found on disk.
+    private void removeUnlistedSegments() throws IOException {
+        List<String> listed = manifest.segments().stream().map(SegmentManifest.Entry::name).toList();
+        List<SegmentManifest.Entry> orphans = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.startsWith("seg-") || fileName.indexOf('.') < 0) continue;
+                String name = fileName.substring(0, fileName.indexOf('.'));
+                try {
+                    nextSegment.accumulateAndGet(Long.parseLong(name.substring(4)), Math::max);
+                } catch (NumberFormatException ignored) {
+                    continue;
+                }
+                if (!listed.contains(name)) orphans.add(SegmentManifest.Entry.unpublished(name));
+            }
+        }
+        deleteFiles(orphans);
+    }
+
+    private void deleteFiles(List<SegmentManifest.Entry> segments) {
+        for (SegmentManifest.Entry segment : segments) {
+            try {
+                SegmentWriter.delete(directory, segment.name());
+            } catch (IOException e) {
+                System.out.println("Cannot delete segment " + segment.name() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Collects unpublished segments in write order; a restart before publish() drops them as orphans.
+    private final class ShadowSegments implements InvertedIndexRepository {
+        private final List<SegmentManifest.Entry> segments = new ArrayList<>();
+
+        synchronized List<SegmentManifest.Entry> segments() {
+            return List.copyOf(segments);
+        }
+
+        private void write(SortedMap<String, TermPostings> postingsByTerm, Map<Integer, Integer> lengthsByBook) {
+            SegmentManifest.Entry segment = writeSegmentFiles(postingsByTerm, lengthsByBook);
+            if (segment == null) return;
+            synchronized (this) {
+                segments.add(segment);
+            }
+        }
+
+        @Override
+        public boolean indexBook(String bookId, TermFrequencies terms) {
+            write(bookPostings(bookId, terms), Map.of(Integer.parseInt(bookId), terms.length()));
+            return true;
+        }
+
+        @Override
+        public void indexPostings(Map<String, TermPostings> postingsByTerm) {
+            write(new TreeMap<>(postingsByTerm), Map.of());
+        }
+
+        @Override
+        public void indexBatch(Map<String, TermPostings> postingsByTerm) {
+            write(new TreeMap<>(postingsByTerm), Map.of());
+        }
+
+        @Override
+        public void indexDocumentLengths(Map<Integer, Integer> lengthsByBook) {
+            write(new TreeMap<>(), lengthsByBook);
+        }
+
+        @Override
+        public void deleteAll() {
+            List<SegmentManifest.Entry> removed;
+            synchronized (this) {
+                removed = List.copyOf(segments);
+                segments.clear();
+            }
+            deleteFiles(removed);
+        }
+
+        @Override
+        public Shadow<InvertedIndexRepository> openShadow() {
+            throw new UnsupportedOperationException("A shadow index cannot open another shadow");
+        }
+
+        @Override
+        public IndexStats getStats() {
+            return stats(segments(), 0);
+        }
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final SegmentReader reader;
+        private final int order;
+        private int index = -1;
+        private String term;
+
+        Cursor(SegmentReader reader, int order) {
+            this.reader = reader;
+            this.order = order;
+        }
+
+        boolean advance() {
+            if (++index >= reader.terms()) return false;
+            term = reader.term(index);
+            return true;
+        }
+
+        TermPostings postings() {
+            return reader.postings(index);
+        }
+
+        // Equal terms come out oldest segment first, so union() lets the newer frequency win.
+        @Override
+        public int compareTo(Cursor other) {
+            int byTerm = term.compareTo(other.term);
+            return byTerm != 0 ? byTerm : Integer.compare(order, other.order);
+        }
+    }
+}
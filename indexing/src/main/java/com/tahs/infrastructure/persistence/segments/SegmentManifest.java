@@ -0,0 +1,69 @@
+package com.tahs.infrastructure.persistence.segments;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// The MANIFEST file lists the live segments, oldest first, so a newer segment's frequency wins
+// when two segments hold the same (term, book). It is replaced atomically (write + rename), so
+// readers always see either the previous or the next complete list.
+//   generation <n>
+//   segment <name> <created epoch millis> <bytes> <terms> <postings> <books> <total book length>
+public record SegmentManifest(long generation, List<Entry> segments) {
+    static final String FILE_NAME = "MANIFEST";
+
+    public record Entry(String name, long createdAtMillis, long bytes,
+                        long terms, long postings, long books, long totalLength) {
+        static Entry unpublished(String name) {
+            return new Entry(name, 0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    public static SegmentManifest read(Path directory) throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(directory.resolve(FILE_NAME), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return new SegmentManifest(0, List.of());
+        }
+        long generation = 0;
+        List<Entry> segments = new ArrayList<>();
+        for (String line : lines) {
+            String[] fields = line.trim().split(" ");
+            if (fields[0].equals("generation")) {
+                generation = Long.parseLong(fields[1]);
+            } else if (fields[0].equals("segment")) {
+                segments.add(new Entry(fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                        count(fields, 4), count(fields, 5), count(fields, 6), count(fields, 7)));
+            }
+        }
+        return new SegmentManifest(generation, List.copyOf(segments));
+    }
+
+    private static long count(String[] fields, int index) {
+        return index < fields.length ? Long.parseLong(fields[index]) : 0;
+    }
+
+    public void write(Path directory) throws IOException {
+        StringBuilder text = new StringBuilder("generation ").append(generation).append('\n');
+        for (Entry segment : segments) {
+            text.append("segment ").append(segment.name()).append(' ')
+                    .append(segment.createdAtMillis()).append(' ').append(segment.bytes()).append(' ')
+                    .append(segment.terms()).append(' ').append(segment.postings()).append(' ')
+                    .append(segment.books()).append(' ').append(segment.totalLength()).append('\n');
+        }
+        Path temporary = directory.resolve(FILE_NAME + ".tmp");
+        Files.writeString(temporary, text, StandardCharsets.UTF_8);
+        Files.move(temporary, directory.resolve(FILE_NAME),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public SegmentManifest with(List<Entry> newSegments) {
+        return new SegmentManifest(generation + 1, List.copyOf(newSegments));
+    }
+}
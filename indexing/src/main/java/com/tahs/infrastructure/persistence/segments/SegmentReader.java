@@ -0,0 +1,101 @@
+package com.tahs.infrastructure.persistence.segments;
+
+import com.tahs.domain.TermPostings;
+import com.tahs.infrastructure.persistence.PostingsCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// Memory-mapped view over one segment written by SegmentWriter; used by the merger to
+// walk terms in order. Segments are immutable, so a reader never needs locking.
+public final class SegmentReader {
+    private final String name;
+    private final ByteBuffer dictionary;
+    private final ByteBuffer postings;
+    private final ByteBuffer lengths;
+    private final int terms;
+    private final int tableOffset;
+
+    private SegmentReader(String name, ByteBuffer dictionary, ByteBuffer postings, ByteBuffer lengths) {
+        this.name = name;
+        this.dictionary = dictionary;
+        this.postings = postings;
+        this.lengths = lengths;
+        int footer = dictionary.limit() - 16;
+        if (footer < 0 || dictionary.getInt(footer + 12) != SegmentWriter.TDX_MAGIC) {
+            throw new IllegalStateException("Corrupt term dictionary in segment " + name);
+        }
+        this.tableOffset = Math.toIntExact(dictionary.getLong(footer));
+        this.terms = dictionary.getInt(footer + 8);
+        if (lengths.getInt(0) != SegmentWriter.LEN_MAGIC) {
+            throw new IllegalStateException("Corrupt document lengths in segment " + name);
+        }
+    }
+
+    public static SegmentReader open(Path directory, String name) throws IOException {
+        return new SegmentReader(name,
+                map(directory.resolve(name + ".tdx")),
+                map(directory.resolve(name + ".pst")),
+                map(directory.resolve(name + ".len")));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int terms() {
+        return terms;
+    }
+
+    public String term(int index) {
+        int entry = entryOffset(index);
+        int length = Short.toUnsignedInt(dictionary.getShort(entry));
+        byte[] key = new byte[length];
+        dictionary.get(entry + 2, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    public TermPostings postings(int index) {
+        int entry = entryOffset(index);
+        int at = entry + 2 + Short.toUnsignedInt(dictionary.getShort(entry));
+        int offset = Math.toIntExact(dictionary.getLong(at));
+        int count = dictionary.getInt(at + 8);
+        byte[] ids = new byte[dictionary.getInt(at + 12)];
+        byte[] frequencies = new byte[dictionary.getInt(at + 16)];
+        postings.get(offset, ids);
+        postings.get(offset + ids.length, frequencies);
+        return new TermPostings(PostingsCodec.decode(ids), PostingsCodec.decodeFrequencies(frequencies, count));
+    }
+
+    public void lengthsInto(Map<Integer, Integer> lengthsByBook) {
+        int count = lengths.getInt(4);
+        for (int i = 0, at = 8; i < count; i++, at += 8) {
+            lengthsByBook.put(lengths.getInt(at), lengths.getInt(at + 4));
+        }
+    }
+
+    public Map<Integer, Integer> lengths() {
+        Map<Integer, Integer> lengthsByBook = new HashMap<>();
+        lengthsInto(lengthsByBook);
+        return lengthsByBook;
+    }
+
+    private int entryOffset(int index) {
+        return dictionary.getInt(tableOffset + (index << 2));
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.tahs.infrastructure.persistence.segments;
+
+import com.tahs.domain.TermPostings;
+import com.tahs.infrastructure.persistence.PostingsCodec;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+// Streams one immutable segment to disk. Terms must arrive in ascending String order.
+//   <name>.pst  per term: PostingsCodec ids, then varint frequencies
+//   <name>.tdx  per term: u16 term length, UTF-8 term, i64 postings offset, i32 count,
+//               i32 ids bytes, i32 frequency bytes; then an i32 offset per entry and a footer
+//               (i64 offsets table position, i32 term count, i32 magic)
+//   <name>.len  i32 magic, i32 count, then (i32 book id, i32 length) pairs
+// All integers are little-endian.
+public final class SegmentWriter implements Closeable {
+    static final int TDX_MAGIC = 0x31584454;
+    static final int LEN_MAGIC = 0x314E454C;
+    // Readers map each file with a single int-addressed buffer.
+    static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+
+    private final Path directory;
+    private final String name;
+    private final DataOutputStream postings;
+    private final DataOutputStream dictionary;
+    private int[] entryOffsets = new int[1024];
+    private int terms;
+    private long postingsBytes;
+    private long postingCount;
+    private int skippedTerms;
+    private long dictionaryBytes;
+    private String lastTerm;
+
+    public SegmentWriter(Path directory, String name) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.postings = open(directory.resolve(name + ".pst"));
+        this.dictionary = open(directory.resolve(name + ".tdx"));
+    }
+
+    public void add(String term, TermPostings termPostings) throws IOException {
+        if (termPostings.size() == 0) return;
+        if (lastTerm != null && lastTerm.compareTo(term) >= 0) {
+            throw new IllegalArgumentException("Terms must be added in ascending order: " + lastTerm + " >= " + term);
+        }
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        if (key.length > 0xFFFF) {
+            skippedTerms++;
+            System.out.println("Segment " + name + ": skipped term of " + key.length + " bytes starting with "
+                    + term.substring(0, 32));
+            return;
+        }
+        byte[] ids = PostingsCodec.encode(termPostings.bookIds());
+        byte[] frequencies = PostingsCodec.encodeFrequencies(termPostings.frequencies());
+        long entryBytes = 2 + key.length + 8 + 4 + 4 + 4;
+        if (postingsBytes + ids.length + frequencies.length > MAX_FILE_BYTES
+                || dictionaryBytes + entryBytes + 4L * (terms + 1) + 16 > MAX_FILE_BYTES) {
+            throw new IOException("Segment " + name + " would exceed " + MAX_FILE_BYTES + " bytes per file");
+        }
+
+        if (terms == entryOffsets.length) entryOffsets = Arrays.copyOf(entryOffsets, terms << 1);
+        entryOffsets[terms++] = (int) dictionaryBytes;
+        dictionary.writeShort(Short.reverseBytes((short) key.length));
+        dictionary.write(key);
+        dictionary.writeLong(Long.reverseBytes(postingsBytes));
+        dictionary.writeInt(Integer.reverseBytes(termPostings.size()));
+        dictionary.writeInt(Integer.reverseBytes(ids.length));
+        dictionary.writeInt(Integer.reverseBytes(frequencies.length));
+        dictionaryBytes += entryBytes;
+
+        postings.write(ids);
+        postings.write(frequencies);
+        postingsBytes += ids.length + frequencies.length;
+        postingCount += termPostings.size();
+        lastTerm = term;
+    }
+
+    // Writes the document lengths and the dictionary footer; returns the segment's total size.
+    public long finish(Map<Integer, Integer> lengthsByBook) throws IOException {
+        long tableOffset = dictionaryBytes;
+        for (int i = 0; i < terms; i++) dictionary.writeInt(Integer.reverseBytes(entryOffsets[i]));
+        dictionary.writeLong(Long.reverseBytes(tableOffset));
+        dictionary.writeInt(Integer.reverseBytes(terms));
+        dictionary.writeInt(Integer.reverseBytes(TDX_MAGIC));
+        close();
+
+        long lengthBytes = 8 + 8L * lengthsByBook.size();
+        try (DataOutputStream lengths = open(directory.resolve(name + ".len"))) {
+            lengths.writeInt(Integer.reverseBytes(LEN_MAGIC));
+            lengths.writeInt(Integer.reverseBytes(lengthsByBook.size()));
+            for (var entry : lengthsByBook.entrySet()) {
+                lengths.writeInt(Integer.reverseBytes(entry.getKey()));
+                lengths.writeInt(Integer.reverseBytes(entry.getValue()));
+            }
+        }
+        return postingsBytes + tableOffset + 4L * terms + 16 + lengthBytes;
+    }
+
+    public int terms() {
+        return terms;
+    }
+
+    public long postings() {
+        return postingCount;
+    }
+
+    public int skippedTerms() {
+        return skippedTerms;
+    }
+
+    @Override
+    public void close() throws IOException {
+        postings.close();
+        dictionary.close();
+    }
+
+    static void delete(Path directory, String name) throws IOException {
+        for (String extension : new String[]{".pst", ".tdx", ".len"}) {
+            Files.deleteIfExists(directory.resolve(name + extension));
+        }
+    }
+
+    private static DataOutputStream open(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+    }
+}
@@ -1,57 +1,150 @@
 package com.tahs.infrastructure.serialization.books;
 
 import com.tahs.domain.Book;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.regex.Pattern;
 
 public class GutenbergHeaderSerializer {
-    private static final String RX_TITLE = "^Title:\\s*(.+)$";
-    private static final String RX_AUTHOR = "^Author:\\s*(.+)$";
-    private static final String RX_LANGUAGE = "^Language:\\s*(.+)$";
-    private static final String RX_EBOOK_ID = "\\[(?:[^\\]]*?)\\b(?:e[-\\s]?book|ebook)\\s*#\\s*(\\d+)\\b[^\\]]*?\\]";
-    private static final String RX_EBOOK_ID_FALLBACK = "\\b(?:project\\s+gutenberg.*?)?\\b(?:e[-\\s]?book|ebook)\\s*#\\s*(\\d+)\\b";
+    private static final String TITLE = "Title:";
+    private static final String AUTHOR = "Author:";
+    private static final String LANGUAGE = "Language:";
 
     public GutenbergHeaderSerializer() {
     }
 
     public Book deserialize(String givenABookHeaderPath) throws IOException {
-        var readTextBook = readFile(givenABookHeaderPath);
-        return deserializeBookFromText(readTextBook);
+        try (var reader = Files.newBufferedReader(Path.of(givenABookHeaderPath), StandardCharsets.UTF_8)) {
+            return deserialize(reader);
+        }
     }
 
     public String readFile(String text) throws IOException {
         return Files.readString(Path.of(text), StandardCharsets.UTF_8);
     }
 
-    private Book deserializeBookFromText(String readTextBook) {
-        var title = extractFirstRegex(RX_TITLE,readTextBook);
-        var author =  extractFirstRegex(RX_AUTHOR,readTextBook);
-        var language = extractFirstRegex(RX_LANGUAGE,readTextBook);
-        var bookId = extractBookId(readTextBook);
-        return new Book(bookId,title,author,language);
+    private Book deserialize(BufferedReader lines) throws IOException {
+        var fields = new HeaderFields();
+        String line;
+        while (!fields.complete() && (line = lines.readLine()) != null) {
+            fields.accept(line);
+        }
+        return fields.toBook();
     }
 
-    private String extractFirstRegex(String regex, String text) {
-        var pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
-        var m = pattern.matcher(text);
-        if (m.find()) {
-            return m.group(1);
+    // Single pass over the header lines: Title/Author/Language take the first "Field:" line
+    // (or the next non-blank line when the value is empty), the ebook id prefers a
+    // "[... eBook #123 ...]" bracket and falls back to the first bare "eBook #123".
+    private static final class HeaderFields {
+        private String title;
+        private String author;
+        private String language;
+        private String pendingField;
+        private String bracketedId;
+        private String firstId;
+        private String openBracketId;
+        private boolean inBracket;
+
+        boolean complete() {
+            return title != null && author != null && language != null && bracketedId != null;
+        }
+
+        void accept(String line) {
+            if (pendingField != null) {
+                int start = skipSpaces(line, 0);
+                if (start < line.length()) {
+                    set(pendingField, line.substring(start));
+                    pendingField = null;
+                }
+            }
+            if (title == null) matchField(line, TITLE);
+            if (author == null) matchField(line, AUTHOR);
+            if (language == null) matchField(line, LANGUAGE);
+            if (bracketedId == null) scanEbookIds(line);
+        }
+
+        Book toBook() {
+            return new Book(parseId(), orEmpty(title), orEmpty(author), orEmpty(language));
+        }
+
+        private void matchField(String line, String field) {
+            if (!line.regionMatches(true, 0, field, 0, field.length())) return;
+            int start = skipSpaces(line, field.length());
+            if (start < line.length()) {
+                set(field, line.substring(start));
+            } else if (pendingField == null) {
+                pendingField = field;
+            }
+        }
+
+        private void set(String field, String value) {
+            switch (field) {
+                case TITLE -> { if (title == null) title = value; }
+                case AUTHOR -> { if (author == null) author = value; }
+                default -> { if (language == null) language = value; }
+            }
         }
-        return "";
-    }
 
-    private int extractBookId(String text) {
-        var id = extractFirstRegex(RX_EBOOK_ID, text);
-        if (id == null) {
-            id = extractFirstRegex(RX_EBOOK_ID_FALLBACK, text);
+        private void scanEbookIds(String line) {
+            for (int i = 0; i < line.length() && bracketedId == null; i++) {
+                char c = line.charAt(i);
+                if (c == '[') {
+                    inBracket = true;
+                } else if (c == ']') {
+                    if (inBracket && openBracketId != null) bracketedId = openBracketId;
+                    inBracket = false;
+                    openBracketId = null;
+                } else if ((c == 'e' || c == 'E') && (i == 0 || !isWordChar(line.charAt(i - 1)))) {
+                    String id = matchEbookId(line, i + 1);
+                    if (id == null) continue;
+                    if (firstId == null) firstId = id;
+                    if (inBracket && openBracketId == null) openBracketId = id;
+                }
+            }
         }
-        try {
-            return id != null ? Integer.parseInt(id) : 0;
-        } catch (NumberFormatException ignored) {
-            return 0;
+
+        // Matches "[-\s]?book\s*#\s*(\d+)\b" right after the leading 'e'.
+        private static String matchEbookId(String line, int i) {
+            if (i < line.length() && (line.charAt(i) == '-' || isSpace(line.charAt(i)))
+                    && !line.regionMatches(true, i, "book", 0, 4)) {
+                i++;
+            }
+            if (!line.regionMatches(true, i, "book", 0, 4)) return null;
+            i = skipSpaces(line, i + 4);
+            if (i >= line.length() || line.charAt(i) != '#') return null;
+            int start = skipSpaces(line, i + 1);
+            int end = start;
+            while (end < line.length() && line.charAt(end) >= '0' && line.charAt(end) <= '9') end++;
+            if (end == start || (end < line.length() && isWordChar(line.charAt(end)))) return null;
+            return line.substring(start, end);
+        }
+
+        private int parseId() {
+            String id = bracketedId != null ? bracketedId : firstId;
+            try {
+                return id != null ? Integer.parseInt(id) : 0;
+            } catch (NumberFormatException ignored) {
+                return 0;
+            }
+        }
+
+        private static int skipSpaces(String line, int i) {
+            while (i < line.length() && isSpace(line.charAt(i))) i++;
+            return i;
+        }
+
+        private static boolean isSpace(char c) {
+            return c == ' ' || c == '\t' || c == '\f' || c == '\u000B' || c == '\r' || c == '\n';
+        }
+
+        private static boolean isWordChar(char c) {
+            return c == '_' || Character.isLetterOrDigit(c);
+        }
+
+        private static String orEmpty(String value) {
+            return value != null ? value : "";
         }
     }
 }
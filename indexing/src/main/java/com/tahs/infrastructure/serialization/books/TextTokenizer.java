@@ -1,5 +1,18 @@
 package com.tahs.infrastructure.serialization.books;
 
+import com.tahs.domain.TermFrequencies;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.Normalizer;
 import java.util.*;
 import java.util.regex.Matcher;
@@ -7,6 +20,22 @@ import java.util.regex.Pattern;
 
 public final class TextTokenizer {
     private static final Pattern WORD = Pattern.compile("\\p{L}+(?:[’']\\p{L}+)*");
+    private static final int CHUNK_CHARS = 32 * 1024;
+    private static final String[] DECOMPOSED_BMP = new String[Character.MAX_VALUE + 1];
+    private static final byte ASCII_OTHER = 0;
+    private static final byte ASCII_LETTER = 1;
+    private static final byte ASCII_SPACE = 2;
+    private static final byte[] ASCII_CLASS = new byte[0x80];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ASCII_CLASS[c] = ASCII_LETTER;
+            ASCII_CLASS[Character.toUpperCase(c)] = ASCII_LETTER;
+        }
+        for (char c : new char[]{' ', '\n', '\r', '\t', '\f'}) {
+            ASCII_CLASS[c] = ASCII_SPACE;
+        }
+    }
 
     private static final Set<String> STOP_WORDS = Set.of(
             "a", "about", "above", "after", "again", "against", "all", "am",
@@ -37,6 +66,29 @@ public final class TextTokenizer {
 
     public static Set<String> extractTerms(String text) {
         if (text == null || text.isBlank()) return Collections.emptySet();
+        return scan(text).toSet();
+    }
+
+    public static TermFrequencies extractTermFrequencies(String text) {
+        if (text == null || text.isBlank()) return new TermFrequencies(Collections.emptyMap(), 0);
+        return scan(text).toFrequencies();
+    }
+
+    private static TermSet scan(String text) {
+        TermScanner scanner = new TermScanner();
+        CharBuffer chunk = CharBuffer.allocate(Math.min(CHUNK_CHARS, text.length()));
+        for (int from = 0; from < text.length(); from += chunk.capacity()) {
+            int to = Math.min(text.length(), from + chunk.capacity());
+            text.getChars(from, to, chunk.array(), 0);
+            chunk.limit(to - from);
+            scanner.feed(chunk);
+            chunk.clear();
+        }
+        return scanner.finish();
+    }
+
+    public static Set<String> extractTermsWithRegex(String text) {
+        if (text == null || text.isBlank()) return Collections.emptySet();
 
         String cleaned = normalize(text);
         Matcher m = WORD.matcher(cleaned);
@@ -51,6 +103,49 @@ public final class TextTokenizer {
         return terms;
     }
 
+    public static Set<String> extractTerms(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return Collections.emptySet();
+            return extractTerms(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public static TermFrequencies extractTermFrequencies(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return new TermFrequencies(Collections.emptyMap(), 0);
+            return extractTermFrequencies(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public static Set<String> extractTerms(ByteBuffer utf8) throws CharacterCodingException {
+        return scan(utf8).toSet();
+    }
+
+    public static TermFrequencies extractTermFrequencies(ByteBuffer utf8) throws CharacterCodingException {
+        return scan(utf8).toFrequencies();
+    }
+
+    private static TermSet scan(ByteBuffer utf8) throws CharacterCodingException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer in = utf8.duplicate();
+        CharBuffer chunk = CharBuffer.allocate(CHUNK_CHARS);
+        TermScanner scanner = new TermScanner();
+        while (true) {
+            CoderResult result = decoder.decode(in, chunk, true);
+            if (result.isError()) result.throwException();
+            scanner.feed(chunk.flip());
+            chunk.clear();
+            if (result.isUnderflow()) break;
+        }
+        decoder.flush(chunk);
+        scanner.feed(chunk.flip());
+        return scanner.finish();
+    }
+
     private static boolean isStopWord(String w) {
         return STOP_WORDS.contains(w);
     }
@@ -68,4 +163,344 @@ public final class TextTokenizer {
         String noMarks = nfd.replaceAll("\\p{M}", "");
         return noMarks.toLowerCase(Locale.ROOT);
     }
+
+    private static int unifyQuote(int cp) {
+        return switch (cp) {
+            case '\u2019', '\u2018', '\u201B', '\u2032', '\u00B4' -> '\'';
+            case '\u201C', '\u201D' -> '"';
+            default -> cp;
+        };
+    }
+
+    private static String decompose(int cp) {
+        if (cp > Character.MAX_VALUE) {
+            return Normalizer.normalize(new String(Character.toChars(cp)), Normalizer.Form.NFD);
+        }
+        String decomposed = DECOMPOSED_BMP[cp];
+        if (decomposed == null) {
+            decomposed = Normalizer.normalize(String.valueOf((char) cp), Normalizer.Form.NFD);
+            DECOMPOSED_BMP[cp] = decomposed;
+        }
+        return decomposed;
+    }
+
+    private static boolean isMark(int cp) {
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK
+                || type == Character.ENCLOSING_MARK
+                || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static final class TermScanner {
+        private static final char CAPITAL_SIGMA = '\u03A3';
+
+        private final TermSet terms = new TermSet();
+        private char[] word = new char[64];
+        private int length;
+        private boolean nonAscii;
+        private boolean sigma;
+        private boolean pendingApostrophe;
+        private char highSurrogate;
+        private char[] segment = new char[256];
+        private int segmentLength;
+        private int wordStart;
+        private int[] sigmaWords = new int[8];
+        private int sigmaWordCount;
+
+        void feed(CharBuffer chunk) {
+            char[] chars = chunk.array();
+            int i = chunk.arrayOffset() + chunk.position();
+            int end = chunk.arrayOffset() + chunk.limit();
+            while (i < end) {
+                if (chars[i] < 0x80 && highSurrogate == 0) {
+                    i = scanAscii(chars, i, end);
+                } else {
+                    acceptChar(chars[i++]);
+                }
+            }
+            chunk.position(chunk.limit());
+        }
+
+        private int scanAscii(char[] chars, int i, int end) {
+            while (i < end) {
+                char c = chars[i];
+                if (c >= 0x80) return i;
+                byte type = ASCII_CLASS[c];
+                if (type == ASCII_LETTER) {
+                    int start = i;
+                    do {
+                        chars[i] = (char) (chars[i] | 0x20);
+                        i++;
+                    } while (i < end && chars[i] < 0x80 && ASCII_CLASS[chars[i]] == ASCII_LETTER);
+                    appendAsciiLetters(chars, start, i);
+                } else if (type == ASCII_SPACE) {
+                    endWord();
+                    endSegment();
+                    i++;
+                } else {
+                    accept(c);
+                    i++;
+                }
+            }
+            return i;
+        }
+
+        private void appendAsciiLetters(char[] chars, int from, int to) {
+            int count = to - from;
+            if (length == 0) wordStart = segmentLength;
+            if (segmentLength + count > segment.length) {
+                segment = Arrays.copyOf(segment, Math.max(segment.length << 1, segmentLength + count));
+            }
+            System.arraycopy(chars, from, segment, segmentLength, count);
+            segmentLength += count;
+            if (pendingApostrophe) {
+                append('\'');
+                pendingApostrophe = false;
+            }
+            if (length + count > word.length) {
+                word = Arrays.copyOf(word, Math.max(word.length << 1, length + count));
+            }
+            System.arraycopy(chars, from, word, length, count);
+            length += count;
+        }
+
+        private void acceptChar(char c) {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    acceptRaw(Character.toCodePoint(high, c));
+                    return;
+                }
+                acceptRaw(high);
+            }
+            if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else {
+                acceptRaw(c);
+            }
+        }
+
+        TermSet finish() {
+            if (highSurrogate != 0) {
+                acceptRaw(highSurrogate);
+                highSurrogate = 0;
+            }
+            endWord();
+            endSegment();
+            return terms;
+        }
+
+        private void acceptRaw(int cp) {
+            if (cp < 0x80) {
+                accept(cp);
+                return;
+            }
+            int unified = unifyQuote(cp);
+            if (unified < 0x80) {
+                accept(unified);
+                return;
+            }
+            String decomposed = decompose(unified);
+            for (int i = 0; i < decomposed.length(); ) {
+                int d = decomposed.codePointAt(i);
+                i += Character.charCount(d);
+                if (!isMark(d)) accept(d);
+            }
+        }
+
+        private void accept(int cp) {
+            if (cp == ' ' || cp == '\n' || cp == '\r' || cp == '\t' || cp == '\f') {
+                endWord();
+                endSegment();
+                return;
+            }
+            if (cp > Character.MAX_VALUE) {
+                appendSegment(Character.highSurrogate(cp));
+                appendSegment(Character.lowSurrogate(cp));
+            } else {
+                appendSegment((char) cp);
+            }
+            if (Character.isLetter(cp)) {
+                if (length == 0) wordStart = segmentLength - Character.charCount(cp);
+                if (pendingApostrophe) {
+                    append('\'');
+                    pendingApostrophe = false;
+                }
+                if (cp < 0x80) {
+                    append((char) (cp | 0x20));
+                } else {
+                    nonAscii = true;
+                    sigma |= cp == CAPITAL_SIGMA;
+                    if (cp > Character.MAX_VALUE) {
+                        append(Character.highSurrogate(cp));
+                        append(Character.lowSurrogate(cp));
+                    } else {
+                        append((char) cp);
+                    }
+                }
+            } else if (cp == '\'' && length > 0 && !pendingApostrophe) {
+                pendingApostrophe = true;
+            } else {
+                endWord();
+            }
+        }
+
+        private void append(char c) {
+            if (length == word.length) word = Arrays.copyOf(word, length << 1);
+            word[length++] = c;
+        }
+
+        private void appendSegment(char c) {
+            if (segmentLength == segment.length) segment = Arrays.copyOf(segment, segmentLength << 1);
+            segment[segmentLength++] = c;
+        }
+
+        private void endWord() {
+            if (length > 0) {
+                if (sigma) {
+                    deferSigmaWord(wordStart, wordStart + length);
+                } else if (nonAscii) {
+                    terms.add(new String(word, 0, length).toLowerCase(Locale.ROOT));
+                } else {
+                    terms.add(word, length);
+                }
+            }
+            length = 0;
+            nonAscii = false;
+            sigma = false;
+            pendingApostrophe = false;
+        }
+
+        // Lowercasing of a capital sigma depends on the letters around it (final sigma),
+        // so those words are lowercased together with their whole whitespace-delimited segment.
+        private void deferSigmaWord(int start, int end) {
+            if (sigmaWordCount * 2 == sigmaWords.length) sigmaWords = Arrays.copyOf(sigmaWords, sigmaWords.length << 1);
+            sigmaWords[sigmaWordCount * 2] = start;
+            sigmaWords[sigmaWordCount * 2 + 1] = end;
+            sigmaWordCount++;
+        }
+
+        private void endSegment() {
+            if (sigmaWordCount > 0) {
+                String lowered = new String(segment, 0, segmentLength).toLowerCase(Locale.ROOT);
+                for (int i = 0; i < sigmaWordCount; i++) {
+                    terms.add(lowered.substring(sigmaWords[i * 2], sigmaWords[i * 2 + 1]));
+                }
+                sigmaWordCount = 0;
+            }
+            segmentLength = 0;
+        }
+    }
+
+    private static final class TermSet {
+        private String[] keys = new String[1024];
+        private boolean[] stop = new boolean[1024];
+        private int[] counts = new int[1024];
+        private int size;
+        private int tokens;
+
+        TermSet() {
+            for (String stopWord : STOP_WORDS) {
+                int slot = insert(stopWord, stopWord.hashCode());
+                stop[slot] = true;
+            }
+        }
+
+        void add(char[] chars, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) hash = 31 * hash + chars[i];
+            int mask = keys.length - 1;
+            for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key == null) {
+                    count(insert(new String(chars, 0, length), hash));
+                    return;
+                }
+                if (key.hashCode() == hash && sameChars(key, chars, length)) {
+                    count(i);
+                    return;
+                }
+            }
+        }
+
+        void add(String term) {
+            int hash = term.hashCode();
+            int mask = keys.length - 1;
+            for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key == null) {
+                    count(insert(term, hash));
+                    return;
+                }
+                if (key.hashCode() == hash && key.equals(term)) {
+                    count(i);
+                    return;
+                }
+            }
+        }
+
+        private void count(int slot) {
+            if (stop[slot]) return;
+            counts[slot]++;
+            tokens++;
+        }
+
+        Set<String> toSet() {
+            Set<String> out = new HashSet<>(Math.max(16, size * 2));
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && !stop[i]) out.add(keys[i]);
+            }
+            return out;
+        }
+
+        TermFrequencies toFrequencies() {
+            Map<String, Integer> out = new HashMap<>(Math.max(16, size * 2));
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && !stop[i]) out.put(keys[i], counts[i]);
+            }
+            return new TermFrequencies(out, tokens);
+        }
+
+        private int insert(String key, int hash) {
+            if ((size + 1) * 2 > keys.length) resize();
+            int mask = keys.length - 1;
+            int i = spread(hash) & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = key;
+            size++;
+            return i;
+        }
+
+        private void resize() {
+            String[] oldKeys = keys;
+            boolean[] oldStop = stop;
+            int[] oldCounts = counts;
+            keys = new String[oldKeys.length << 1];
+            stop = new boolean[oldKeys.length << 1];
+            counts = new int[oldKeys.length << 1];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                String key = oldKeys[j];
+                if (key == null) continue;
+                int i = spread(key.hashCode()) & mask;
+                while (keys[i] != null) i = (i + 1) & mask;
+                keys[i] = key;
+                stop[i] = oldStop[j];
+                counts[i] = oldCounts[j];
+            }
+        }
+
+        private static boolean sameChars(String key, char[] chars, int length) {
+            if (key.length() != length) return false;
+            for (int i = 0; i < length; i++) {
+                if (key.charAt(i) != chars[i]) return false;
+            }
+            return true;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ import java.net.http.*;
 
 import static com.tahs.Main.createApp;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class IndexingApiAcceptanceTest {
     private static Javalin app;
@@ -26,8 +27,9 @@ public class IndexingApiAcceptanceTest {
         HttpResponse<String> response = HttpClient.newHttpClient()
                 .send(indexUpdateCall, HttpResponse.BodyHandlers.ofString());
 
-        assertEquals(200, response.statusCode());
-        assertEquals("{\"book_id\":\"1\",\"index\":\"updated\"}", response.body());
+        assertEquals(202, response.statusCode());
+        assertTrue(response.headers().firstValue("Location").orElse("").startsWith("/index/jobs/"));
+        assertTrue(response.body().contains("\"book_id\":\"1\""));
     }
 
 
@@ -0,0 +1,132 @@
+package com.tahs.infrastructure.index;
+
+import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.application.ports.Shadow;
+import com.tahs.domain.IndexStats;
+import com.tahs.domain.TermFrequencies;
+import com.tahs.domain.TermPostings;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpimiIndexBuilderTest {
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void merges_spilled_runs_into_sorted_distinct_postings() throws IOException {
+        var repository = new RecordingRepository();
+
+        try (var builder = new SpimiIndexBuilder(1, spillDir, 2)) {
+            builder.add(7, terms("love", "war", "war"));
+            builder.add(3, terms("love"));
+            builder.add(7, terms("peace"));
+            builder.add(5, terms("war", "peace"));
+            assertTrue(countRuns() > 1);
+
+            assertEquals(3, builder.loadInto(repository));
+        }
+
+        assertEquals(Map.of(
+                "love", List.of("3", "7"),
+                "peace", List.of("5", "7"),
+                "war", List.of("5", "7")
+        ), repository.postings);
+        assertEquals(List.of("love", "peace", "war"), new ArrayList<>(repository.postings.keySet()));
+        assertEquals(List.of(1, 2), repository.frequencies.get("war"));
+        assertEquals(Map.of(3, 1, 5, 2, 7, 1), repository.lengths);
+        assertEquals(0, countRuns());
+    }
+
+    @Test
+    void spills_terms_longer_than_64_kb() throws IOException {
+        var repository = new RecordingRepository();
+        String longTerm = "é".repeat(40_000);
+
+        try (var builder = new SpimiIndexBuilder(1, spillDir, 10)) {
+            builder.add(1, terms(longTerm));
+            builder.add(2, terms(longTerm, "sea"));
+            assertTrue(countRuns() > 0);
+            builder.loadInto(repository);
+        }
+
+        assertEquals(Map.of(longTerm, List.of("1", "2"), "sea", List.of("2")), repository.postings);
+    }
+
+    @Test
+    void loads_in_memory_block_without_spilling() throws IOException {
+        var repository = new RecordingRepository();
+
+        try (var builder = new SpimiIndexBuilder(1L << 20, spillDir, 100)) {
+            builder.add(1, terms("whale"));
+            builder.add(2, terms("whale", "sea"));
+            builder.loadInto(repository);
+        }
+
+        assertEquals(0, countRuns());
+        assertEquals(Map.of("sea", List.of("2"), "whale", List.of("1", "2")), repository.postings);
+    }
+
+    private static TermFrequencies terms(String... tokens) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String token : tokens) counts.merge(token, 1, Integer::sum);
+        return new TermFrequencies(counts, tokens.length);
+    }
+
+    private long countRuns() throws IOException {
+        try (var files = Files.list(spillDir)) {
+            return files.count();
+        }
+    }
+
+    private static class RecordingRepository implements InvertedIndexRepository {
+        private final Map<String, List<String>> postings = new LinkedHashMap<>();
+        private final Map<String, List<Integer>> frequencies = new HashMap<>();
+        private final Map<Integer, Integer> lengths = new HashMap<>();
+
+        @Override
+        public boolean indexBook(String book_id, TermFrequencies terms) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void indexPostings(Map<String, TermPostings> postingsByTerm) {
+            postingsByTerm.forEach((term, termPostings) -> {
+                postings.put(term, Arrays.stream(termPostings.bookIds()).mapToObj(Integer::toString).toList());
+                frequencies.put(term, Arrays.stream(termPostings.frequencies()).boxed().toList());
+            });
+        }
+
+        @Override
+        public void indexBatch(Map<String, TermPostings> postingsByTerm) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void indexDocumentLengths(Map<Integer, Integer> lengthsByBook) {
+            lengths.putAll(lengthsByBook);
+        }
+
+        @Override
+        public void deleteAll() {
+            postings.clear();
+        }
+
+        @Override
+        public Shadow<InvertedIndexRepository> openShadow() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public IndexStats getStats() {
+            return new IndexStats(0, null, 0, 0, 0, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.tahs.infrastructure.persistence;
+
+import org.junit.jupiter.api.*;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostingsCodecTest {
+
+    @Test
+    void sparse_postings_use_delta_varint() {
+        int[] ids = {3, 130, 1342, 2701, 70000};
+
+        byte[] encoded = PostingsCodec.encode(ids);
+
+        assertEquals(PostingsCodec.DELTA_VARINT, encoded[0]);
+        assertArrayEquals(ids, PostingsCodec.decode(encoded));
+    }
+
+    @Test
+    void dense_postings_use_bitmap() {
+        int[] ids = IntStream.range(1000, 5000).filter(id -> id % 3 != 0).toArray();
+
+        byte[] encoded = PostingsCodec.encode(ids);
+
+        assertEquals(PostingsCodec.BITMAP, encoded[0]);
+        assertTrue(encoded.length < ids.length);
+        assertArrayEquals(ids, PostingsCodec.decode(encoded));
+    }
+
+    @Test
+    void round_trips_random_postings() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int[] ids = random.ints(random.nextInt(2000), 0, 1 + random.nextInt(100_000)).sorted().distinct().toArray();
+            assertArrayEquals(ids, PostingsCodec.decode(PostingsCodec.encode(ids)));
+        }
+    }
+
+    @Test
+    void union_merges_sorted_postings() {
+        assertArrayEquals(new int[]{1, 2, 3, 5, 8}, PostingsCodec.union(new int[]{1, 3, 8}, new int[]{2, 3, 5}));
+    }
+}
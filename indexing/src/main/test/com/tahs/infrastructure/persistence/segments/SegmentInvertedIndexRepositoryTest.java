@@ -0,0 +1,103 @@
+package com.tahs.infrastructure.persistence.segments;
+
+import com.tahs.domain.TermFrequencies;
+import com.tahs.domain.TermPostings;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentInvertedIndexRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void merges_segments_and_keeps_the_newest_frequency() throws Exception {
+        var repository = new SegmentInvertedIndexRepository(directory, 2);
+
+        repository.indexBook("7", new TermFrequencies(Map.of("whale", 3, "sea", 1), 4));
+        repository.indexBook("2", new TermFrequencies(Map.of("whale", 1), 1));
+        repository.indexPostings(Map.of("whale", new TermPostings(new int[]{7, 9}, new int[]{5, 2})));
+
+        SegmentManifest manifest = awaitSegments(1);
+        SegmentReader merged = SegmentReader.open(directory, manifest.segments().get(0).name());
+        Map<String, TermPostings> terms = new HashMap<>();
+        for (int i = 0; i < merged.terms(); i++) terms.put(merged.term(i), merged.postings(i));
+
+        assertEquals("sea", merged.term(0));
+        assertArrayEquals(new int[]{2, 7, 9}, terms.get("whale").bookIds());
+        assertArrayEquals(new int[]{1, 5, 2}, terms.get("whale").frequencies());
+        assertArrayEquals(new int[]{7}, terms.get("sea").bookIds());
+        assertEquals(Map.of(7, 4, 2, 1), merged.lengths());
+        var stats = repository.getStats();
+        assertEquals(2, stats.terms());
+        assertEquals(4, stats.postings());
+        assertEquals(2, stats.books());
+        assertEquals(2.5, stats.averageLength());
+    }
+
+    @Test
+    void writer_skips_terms_longer_than_the_dictionary_allows() throws Exception {
+        String tooLong = "a".repeat(0x10000);
+        try (var writer = new SegmentWriter(directory, "seg-long")) {
+            writer.add(tooLong, new TermPostings(new int[]{1}, new int[]{1}));
+            writer.add("whale", new TermPostings(new int[]{1}, new int[]{2}));
+            writer.finish(Map.of(1, 3));
+
+            assertEquals(1, writer.terms());
+            assertEquals(1, writer.skippedTerms());
+        }
+        SegmentReader reader = SegmentReader.open(directory, "seg-long");
+        assertEquals(1, reader.terms());
+        assertEquals("whale", reader.term(0));
+    }
+
+    @Test
+    void delete_all_empties_the_manifest_and_the_directory() throws Exception {
+        var repository = new SegmentInvertedIndexRepository(directory, 8);
+        repository.indexBook("1", new TermFrequencies(Map.of("call", 1), 1));
+
+        repository.deleteAll();
+
+        assertTrue(SegmentManifest.read(directory).segments().isEmpty());
+        try (var files = Files.list(directory)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().startsWith("seg-")));
+        }
+        assertEquals(0.0, repository.getStats().sizeMB());
+    }
+
+    @Test
+    void shadow_segments_replace_the_live_index_only_when_published() throws Exception {
+        var repository = new SegmentInvertedIndexRepository(directory, 8);
+        repository.indexBook("1", new TermFrequencies(Map.of("old", 1), 1));
+        String live = SegmentManifest.read(directory).segments().get(0).name();
+
+        var shadow = repository.openShadow();
+        shadow.repository().indexPostings(Map.of("new", new TermPostings(new int[]{2}, new int[]{1})));
+        assertEquals(live, SegmentManifest.read(directory).segments().get(0).name());
+
+        shadow.publish();
+
+        SegmentManifest manifest = SegmentManifest.read(directory);
+        assertEquals(1, manifest.segments().size());
+        assertEquals("new", SegmentReader.open(directory, manifest.segments().get(0).name()).term(0));
+        assertFalse(Files.exists(directory.resolve(live + ".tdx")));
+    }
+
+    private SegmentManifest awaitSegments(int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        SegmentManifest manifest = SegmentManifest.read(directory);
+        while (manifest.segments().size() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            manifest = SegmentManifest.read(directory);
+        }
+        assertEquals(count, manifest.segments().size());
+        return manifest;
+    }
+}
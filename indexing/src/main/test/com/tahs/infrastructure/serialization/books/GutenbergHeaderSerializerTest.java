@@ -3,13 +3,20 @@ package com.tahs.infrastructure.serialization.books;
 import com.tahs.domain.Book;
 import com.tahs.infrastructure.serialization.books.GutenbergHeaderSerializer;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class GutenbergHeaderSerializerTest {
 
+    @TempDir
+    Path directory;
+
     @Test
     void read_book_header_datalake() throws IOException {
         var givenABookHeaderPath = "src/main/test/datalake/20251018/18/6036.header.txt";
@@ -20,4 +27,101 @@ public class GutenbergHeaderSerializerTest {
         Book expectedBook = new Book(6036, "The Kasîdah of Hâjî Abdû El-Yezdî", "Sir Richard Francis Burton", "English");
         assertEquals(expectedBook,book);
     }
+
+    @Test
+    void reads_fields_and_bracketed_release_date_id() throws IOException {
+        Book book = deserialize("""
+                Title: Moby Dick
+                Author: Herman Melville
+                Language: English
+
+                Release Date: July 1, 2001 [EBook #2701]
+                """);
+
+        assertEquals(new Book(2701, "Moby Dick", "Herman Melville", "English"), book);
+    }
+
+    @Test
+    void handles_crlf_line_endings() throws IOException {
+        Book book = deserialize("Title: Moby Dick\r\nAuthor: Herman Melville\r\nLanguage: English\r\n"
+                + "Release Date: July 1, 2001 [EBook #2701]\r\n");
+
+        assertEquals(new Book(2701, "Moby Dick", "Herman Melville", "English"), book);
+    }
+
+    @Test
+    void multi_line_title_keeps_its_first_line() throws IOException {
+        Book book = deserialize("""
+                Title: The Kasidah
+                       of Haji Abdu El-Yezdi
+                Author: Sir Richard Francis Burton
+                Language: English
+                [eBook #6036]
+                """);
+
+        assertEquals(new Book(6036, "The Kasidah", "Sir Richard Francis Burton", "English"), book);
+    }
+
+    @Test
+    void empty_field_takes_the_next_non_blank_line() throws IOException {
+        Book book = deserialize("""
+                Title:
+
+                   Late Title
+                Author: A
+                Language: French
+                Release date: 2004-03-01 [E-book #11234]
+                """);
+
+        assertEquals(new Book(11234, "Late Title", "A", "French"), book);
+    }
+
+    @Test
+    void field_prefixes_and_ebook_marker_ignore_case() throws IOException {
+        Book book = deserialize("""
+                title: lower
+                AUTHOR: upper
+                language: german
+                [Most recently updated: 2020] Release Date: May 2005 [Ebook #77]
+                """);
+
+        assertEquals(new Book(77, "lower", "upper", "german"), book);
+    }
+
+    @Test
+    void missing_fields_are_empty_and_missing_id_is_zero() throws IOException {
+        Book book = deserialize("""
+                Author: Nobody
+                Some text
+                """);
+
+        assertEquals(new Book(0, "", "Nobody", ""), book);
+    }
+
+    @Test
+    void bracketed_id_wins_over_an_earlier_bare_one() throws IOException {
+        Book book = deserialize("""
+                Title: X
+                The Project Gutenberg EBook #5, and [EBook #9]
+                """);
+
+        assertEquals(9, book.getBookId());
+    }
+
+    // The regex version's fallback was unreachable and returned 0 here.
+    @Test
+    void bare_id_is_used_when_no_bracketed_one_exists() throws IOException {
+        Book book = deserialize("""
+                Title: X
+                Release Date: May 5, 2005 EBook #123
+                """);
+
+        assertEquals(123, book.getBookId());
+    }
+
+    private Book deserialize(String header) throws IOException {
+        Path file = directory.resolve("header.txt");
+        Files.writeString(file, header, StandardCharsets.UTF_8);
+        return new GutenbergHeaderSerializer().deserialize(file.toString());
+    }
 }
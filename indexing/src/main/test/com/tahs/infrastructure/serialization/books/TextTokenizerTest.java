@@ -0,0 +1,70 @@
+package com.tahs.infrastructure.serialization.books;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextTokenizerTest {
+
+    @Test
+    void scanning_tokenizer_matches_regex_tokenizer() throws IOException {
+        String[] samples = {
+                "",
+                "   \n\t ",
+                "It is a truth universally acknowledged, that a single man in possession of a good fortune...",
+                "Don’t stop: l'amour, rock'n'roll, o''clock, 'quoted', trailing' ‘single’ “double”",
+                "Café naïve façade Ångström São Paulo ÉCOLE Straße Ελληνικά ΟΔΟΣ Москва 東京 한국어",
+                "İstanbul ﬁnal ǅemal école ́orphan mark 𝔘𝔫𝔦𝔠𝔬𝔡𝔢 letters",
+        };
+        for (String sample : samples) {
+            Set<String> expected = TextTokenizer.extractTermsWithRegex(sample);
+            assertEquals(expected, TextTokenizer.extractTerms(sample), sample);
+            assertEquals(expected, streamed(sample), sample);
+        }
+    }
+
+    @Test
+    void scanning_tokenizer_matches_regex_tokenizer_across_chunk_boundaries() throws IOException {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ   ''’.,-\néèàçñöÅΣσ𝔘𝔫";
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 200_000) {
+            int cp = alphabet.codePointAt(random.nextInt(alphabet.length() - 1));
+            text.appendCodePoint(Character.isLowSurrogate((char) cp) ? 'x' : cp);
+        }
+        Set<String> expected = TextTokenizer.extractTermsWithRegex(text.toString());
+        assertEquals(expected, TextTokenizer.extractTerms(text.toString()));
+        assertEquals(expected, streamed(text.toString()));
+    }
+
+    @Test
+    void reads_terms_from_file() throws IOException {
+        Path body = Files.createTempFile("tokenizer", ".body.txt");
+        try {
+            Files.writeString(body, "The whale! The WHALE, and the sea.", StandardCharsets.UTF_8);
+            assertEquals(Set.of("whale", "sea"), TextTokenizer.extractTerms(body));
+        } finally {
+            Files.deleteIfExists(body);
+        }
+    }
+
+    @Test
+    void counts_term_frequencies_without_stop_words() {
+        var frequencies = TextTokenizer.extractTermFrequencies("The whale! The WHALE, and the sea.");
+        assertEquals(Map.of("whale", 2, "sea", 1), frequencies.counts());
+        assertEquals(3, frequencies.length());
+    }
+
+    private static Set<String> streamed(String text) throws IOException {
+        return TextTokenizer.extractTerms(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -41,7 +41,13 @@ public class Main {
             return;
         }
 
-        DatalakeRepository datalakeRepo = new FsDatalakeRepository(DATALAKE_PATH);
+        DatalakeRepository datalakeRepo;
+        try {
+            datalakeRepo = new FsDatalakeRepository(DATALAKE_PATH);
+        } catch (Exception e) {
+            System.err.println("[ERROR] Could not load datalake catalog: " + e.getMessage());
+            return;
+        }
         ingestionService = new IngestionService(datalakeRepo, Paths.get(STAGING_PATH), TOTAL_BOOKS, MAX_RETRIES, appConfig);
 
         Javalin app = Javalin.create(cfg -> cfg.http.defaultContentType = "application/json").start(PORT);
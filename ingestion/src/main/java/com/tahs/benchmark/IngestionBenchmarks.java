@@ -54,7 +54,7 @@ public class IngestionBenchmarks {
     private AtomicInteger rr;
 
     @Setup(Level.Trial)
-    public void setup() {
+    public void setup() throws IOException {
         var dotenv = Dotenv.configure()
                 .ignoreIfMissing()
                 .load();
@@ -0,0 +1,118 @@
+package com.tahs.infrastructure;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+public class DatalakeCatalog {
+    public static final String FILE_NAME = "catalog.log";
+    private static final Pattern HOUR_DIR = Pattern.compile("\\d{8}/\\d{2}");
+
+    public record Entry(int bookId, String relativeDir, long sizeBytes, long timestampMs) {}
+
+    private final Path datalakeRoot;
+    private final Path logFile;
+    private final Int2ObjectOpenHashMap<Entry> entries = new Int2ObjectOpenHashMap<>();
+    private long readOffset;
+
+    public DatalakeCatalog(Path datalakeRoot) throws IOException {
+        this.datalakeRoot = datalakeRoot.toAbsolutePath().normalize();
+        this.logFile = this.datalakeRoot.resolve(FILE_NAME);
+        Files.createDirectories(this.datalakeRoot);
+        if (!Files.exists(logFile)) {
+            bootstrapFromFilesystem();
+        }
+        refresh();
+    }
+
+    public synchronized Optional<Entry> find(int bookId) {
+        return Optional.ofNullable(entries.get(bookId));
+    }
+
+    public synchronized boolean contains(int bookId) {
+        return entries.get(bookId) != null;
+    }
+
+    public synchronized List<Integer> bookIds() {
+        int[] ids = entries.keySet().toIntArray();
+        Arrays.sort(ids);
+        return Arrays.stream(ids).boxed().toList();
+    }
+
+    public synchronized void append(int bookId, String relativeDir, long sizeBytes, long timestampMs) throws IOException {
+        String line = bookId + "\t" + relativeDir + "\t" + sizeBytes + "\t" + timestampMs + "\n";
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+        }
+        refresh();
+    }
+
+    public synchronized void refresh() throws IOException {
+        if (!Files.exists(logFile)) return;
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < readOffset) {
+                entries.clear();
+                readOffset = 0;
+            }
+            if (size == readOffset) return;
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, size - readOffset));
+            while (buffer.hasRemaining() && channel.read(buffer, readOffset + buffer.position()) > 0) { }
+            buffer.flip();
+            int lastNewline = -1;
+            for (int i = buffer.limit() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') { lastNewline = i; break; }
+            }
+            if (lastNewline < 0) return;
+            String chunk = new String(buffer.array(), 0, lastNewline, StandardCharsets.UTF_8);
+            for (String line : chunk.split("\n")) {
+                Entry entry = parse(line);
+                if (entry != null) entries.put(entry.bookId(), entry);
+            }
+            readOffset += lastNewline + 1;
+        }
+    }
+
+    private void bootstrapFromFilesystem() throws IOException {
+        StringBuilder log = new StringBuilder();
+        try (Stream<Path> stream = Files.find(datalakeRoot, 3,
+                (p, attrs) -> attrs.isRegularFile() && p.getFileName().toString().endsWith(".body.txt"))) {
+            for (Path body : (Iterable<Path>) stream::iterator) {
+                String relativeDir = datalakeRoot.relativize(body.getParent()).toString().replace('\\', '/');
+                if (!HOUR_DIR.matcher(relativeDir).matches()) continue;
+                String bookId = body.getFileName().toString().split("\\.")[0];
+                log.append(bookId).append('\t').append(relativeDir).append('\t')
+                        .append(Files.size(body)).append('\t')
+                        .append(Files.getLastModifiedTime(body).toMillis()).append('\n');
+            }
+        }
+        Path tmp = logFile.resolveSibling(FILE_NAME + ".tmp");
+        Files.writeString(tmp, log, StandardCharsets.UTF_8);
+        Files.move(tmp, logFile, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Entry parse(String line) {
+        String[] parts = line.split("\t");
+        if (parts.length != 4) return null;
+        try {
+            return new Entry(Integer.parseInt(parts[0]), parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
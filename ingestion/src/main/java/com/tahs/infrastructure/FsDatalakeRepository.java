@@ -7,40 +7,25 @@ import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class FsDatalakeRepository implements DatalakeRepository {
 
     private final Path datalakeRoot;
+    private final DatalakeCatalog catalog;
 
-    public FsDatalakeRepository(String datalakeRoot) {
+    public FsDatalakeRepository(String datalakeRoot) throws IOException {
         this.datalakeRoot = Paths.get(datalakeRoot).toAbsolutePath().normalize();
+        this.catalog = new DatalakeCatalog(this.datalakeRoot);
     }
 
     @Override
     public boolean exists(int bookId) throws IOException {
-        if (!Files.exists(datalakeRoot)) return false;
-        try (var stream = Files.walk(datalakeRoot)) {
-            return stream
-                    .filter(Files::isRegularFile)
-                    .anyMatch(p -> p.getFileName().toString().startsWith(bookId + ".body.txt"));
-        }
+        return catalog.contains(bookId);
     }
 
     @Override
     public List<Integer> listBooks() throws IOException {
-        if (!Files.exists(datalakeRoot)) return List.of();
-        try (var stream = Files.walk(datalakeRoot)) {
-            return stream
-                    .filter(Files::isRegularFile)
-                    .map(p -> p.getFileName().toString())
-                    .filter(name -> name.endsWith(".body.txt"))
-                    .map(name -> name.split("\\.")[0])
-                    .map(Integer::parseInt)
-                    .distinct()
-                    .sorted()
-                    .collect(Collectors.toList());
-        }
+        return catalog.bookIds();
     }
 
     @Override
@@ -63,6 +48,7 @@ public class FsDatalakeRepository implements DatalakeRepository {
 
         Files.move(bodySrc, bodyDst, StandardCopyOption.REPLACE_EXISTING);
         Files.move(headerSrc, headerDst, StandardCopyOption.REPLACE_EXISTING);
+        catalog.append(bookId, date + "/" + hour, Files.size(bodyDst), System.currentTimeMillis());
 
         System.out.println("[INFO] Book " + bookId + " moved to datalake at " + targetDir);
         return true;
@@ -1,21 +1,43 @@
 package com.tahs;
 
 import com.mongodb.client.MongoClients;
+import com.tahs.application.dto.RankedBookDto;
 import com.tahs.application.dto.SearchDto;
+import com.tahs.application.dto.SearchPageDto;
+import com.tahs.application.exceptions.InvalidQuery;
 import com.tahs.application.usecase.QueryBooksUseCase;
+import com.tahs.application.ports.InvertedIndexRepository;
 import com.tahs.config.AppConfig;
+import com.tahs.infrastructure.cache.BloomFilterInvertedIndexRepository;
+import com.tahs.infrastructure.cache.CachingInvertedIndexRepository;
+import com.tahs.infrastructure.cache.CachingMetadataRepository;
+import com.tahs.infrastructure.facets.MetadataBitmapIndex;
+import com.tahs.infrastructure.memory.OffHeapInvertedIndexRepository;
 import com.tahs.infrastructure.persistence.MongoInvertedIndexRepository;
 import com.tahs.infrastructure.persistence.MongoMetadataRepository;
+import com.tahs.infrastructure.persistence.segments.SegmentInvertedIndexRepository;
 import io.github.cdimascio.dotenv.Dotenv;
 import io.javalin.Javalin;
+import io.javalin.http.Context;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class Main {
+    private static final String NDJSON = "application/x-ndjson";
+
     public static void main(String[] args) {
         var dotenv = Dotenv.configure()
                 .ignoreIfMissing()
@@ -26,15 +48,43 @@ public class Main {
 
     private static Javalin createApp(AppConfig appConfig) {
         var mongoClient = MongoClients.create(appConfig.dbUrl());
-        var indexService = new MongoInvertedIndexRepository(mongoClient, appConfig.databaseName(), appConfig.collectionIndexName());
-        var metadataRepository = new MongoMetadataRepository(mongoClient, appConfig.databaseName(), appConfig.collectionMetadataName());
-        var queryUseCase = new QueryBooksUseCase(indexService,metadataRepository);
+        Map<String, Supplier<Object>> stats = new LinkedHashMap<>();
+        InvertedIndexRepository indexService;
+        if (appConfig.indexStore().equalsIgnoreCase("file")) {
+            var segments = new SegmentInvertedIndexRepository(Path.of(appConfig.indexDir()),
+                    Duration.ofMillis(appConfig.indexRefreshMillis()));
+            stats.put("segments", segments::stats);
+            indexService = segments;
+        } else if (appConfig.replicaEnabled()) {
+            var mongoIndex = new MongoInvertedIndexRepository(mongoClient, appConfig.databaseName(), appConfig.collectionIndexName());
+            var replica = new OffHeapInvertedIndexRepository(mongoIndex, appConfig.replicaChunkBytes(),
+                    Duration.ofSeconds(appConfig.replicaRefreshSeconds()));
+            stats.put("replica", replica::stats);
+            indexService = replica;
+        } else {
+            var mongoIndex = new MongoInvertedIndexRepository(mongoClient, appConfig.databaseName(), appConfig.collectionIndexName());
+            var postingsCache = new CachingInvertedIndexRepository(mongoIndex,
+                    appConfig.postingsCacheBytes(), Duration.ofSeconds(appConfig.postingsCacheTtlSeconds()));
+            var termFilter = new BloomFilterInvertedIndexRepository(postingsCache,
+                    appConfig.termFilterFalsePositiveRate(), Duration.ofSeconds(appConfig.termFilterRefreshSeconds()));
+            stats.put("postings_cache", postingsCache::stats);
+            stats.put("term_filter", termFilter::stats);
+            indexService = termFilter;
+        }
+        var metadataRepository = new CachingMetadataRepository(
+                new MongoMetadataRepository(mongoClient, appConfig.databaseName(), appConfig.collectionMetadataName()),
+                appConfig.metadataCacheEntries(), Duration.ofSeconds(appConfig.postingsCacheTtlSeconds()));
+        var facetIndex = new MetadataBitmapIndex(metadataRepository, appConfig.facetTopAuthors(),
+                Duration.ofSeconds(appConfig.facetRefreshSeconds()));
+        var queryUseCase = new QueryBooksUseCase(indexService, metadataRepository, facetIndex,
+                appConfig.topK(), appConfig.maxResultWindow());
+        stats.put("in_flight", queryUseCase::inFlightStats);
 
         Javalin app = Javalin.create(config -> config.http.defaultContentType = "application/json");
 
         app.get("/search", ctx -> {
             try {
-                Set<String> allowedParams = Set.of("q","author", "language", "year");
+                Set<String> allowedParams = Set.of("q","author", "language", "year", "limit", "offset");
                 Map<String, List<String>> filteredParams =ctx.queryParamMap().entrySet().stream()
                         .filter(e -> allowedParams.contains(e.getKey()))
                         .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
@@ -44,16 +94,65 @@ public class Main {
                     ctx.status(400).json(new ErrorResponse("Query parameter 'q' is required"));
                     return;
                 }
+                if (wantsNdjson(ctx)) {
+                    streamNdjson(ctx, queryUseCase, filteredParams);
+                    return;
+                }
                 SearchDto results = queryUseCase.execute(filteredParams);
                 ctx.json(results);
+            } catch (InvalidQuery e) {
+                ctx.status(400).json(new ErrorResponse(e.getMessage()));
             } catch (Exception e) {
                 ctx.status(500).json(new ErrorResponse("Search error: " + e.getMessage()));
                 e.printStackTrace();
             }
         });
+        app.get("/search/stats", ctx -> {
+            Map<String, Object> current = new LinkedHashMap<>();
+            stats.forEach((name, supplier) -> current.put(name, supplier.get()));
+            ctx.json(current);
+        });
         return app;
     }
 
+    private static boolean wantsNdjson(Context ctx) {
+        String accept = ctx.header("Accept");
+        return "ndjson".equalsIgnoreCase(ctx.queryParam("format"))
+                || (accept != null && accept.contains(NDJSON));
+    }
+
+    // One JSON object per line: the page header, then each book as soon as its chunk of metadata arrives.
+    private static void streamNdjson(Context ctx, QueryBooksUseCase queryUseCase,
+                                     Map<String, List<String>> params) throws IOException {
+        var mapper = ctx.jsonMapper();
+        ctx.contentType(NDJSON);
+        var writer = new BufferedWriter(new OutputStreamWriter(ctx.outputStream(), StandardCharsets.UTF_8));
+        queryUseCase.stream(params,
+                page -> writeLine(writer, mapper.toJsonString(page, SearchPageDto.class)),
+                books -> {
+                    for (RankedBookDto book : books) writeLine(writer, mapper.toJsonString(book, RankedBookDto.class));
+                    flush(writer);
+                });
+        writer.flush();
+    }
+
+    private static void writeLine(BufferedWriter writer, String json) {
+        try {
+            writer.write(json);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void flush(BufferedWriter writer) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static class ErrorResponse {
         public String error;
 
@@ -75,12 +174,57 @@ public class Main {
         String portStr = Optional.ofNullable(dotenv.get("PORT"))
                 .orElse(System.getenv("PORT"));
         int port = portStr != null ? Integer.parseInt(portStr) : 9090;
+        long postingsCacheBytes = envInt(dotenv, "SEARCH_CACHE_MB", 64) * 1024L * 1024L;
+        int postingsCacheTtlSeconds = envInt(dotenv, "SEARCH_CACHE_TTL_SECONDS", 300);
+        int metadataCacheEntries = envInt(dotenv, "SEARCH_METADATA_CACHE_ENTRIES", 100_000);
+        int topK = envInt(dotenv, "SEARCH_TOP_K", 100);
+        int maxResultWindow = envInt(dotenv, "SEARCH_MAX_RESULT_WINDOW", 10_000);
+        int facetRefreshSeconds = envInt(dotenv, "SEARCH_FACET_REFRESH_SECONDS", 60);
+        int facetTopAuthors = envInt(dotenv, "SEARCH_FACET_TOP_AUTHORS", 10);
+        int termFilterRefreshSeconds = envInt(dotenv, "SEARCH_TERM_FILTER_REFRESH_SECONDS", 30);
+        String termFilterFpp = Optional.ofNullable(dotenv.get("SEARCH_TERM_FILTER_FPP"))
+                .orElse(System.getenv("SEARCH_TERM_FILTER_FPP"));
+        double termFilterFalsePositiveRate = termFilterFpp != null ? Double.parseDouble(termFilterFpp) : 0.01;
+        String replica = Optional.ofNullable(dotenv.get("SEARCH_REPLICA"))
+                .orElse(System.getenv("SEARCH_REPLICA"));
+        boolean replicaEnabled = Boolean.parseBoolean(replica);
+        int replicaChunkBytes = envInt(dotenv, "SEARCH_REPLICA_CHUNK_MB", 64) * 1024 * 1024;
+        int replicaRefreshSeconds = envInt(dotenv, "SEARCH_REPLICA_REFRESH_SECONDS", 30);
+        String indexStore = envString(dotenv, "INDEX_STORE", "mongo");
+        String indexDir = envString(dotenv, "INDEX_DIR", "index");
+        int indexRefreshMillis = envInt(dotenv, "INDEX_REFRESH_MS", 1000);
         return new AppConfig(
                 dbUrl,
                 databaseName,
                 collectionMetaData,
                 collectionIndex,
-                port
+                port,
+                postingsCacheBytes,
+                postingsCacheTtlSeconds,
+                metadataCacheEntries,
+                topK,
+                maxResultWindow,
+                facetRefreshSeconds,
+                facetTopAuthors,
+                termFilterRefreshSeconds,
+                termFilterFalsePositiveRate,
+                replicaEnabled,
+                replicaChunkBytes,
+                replicaRefreshSeconds,
+                indexStore,
+                indexDir,
+                indexRefreshMillis
         );
     }
+
+    private static String envString(Dotenv dotenv, String name, String defaultValue) {
+        String value = Optional.ofNullable(dotenv.get(name))
+                .orElse(System.getenv(name));
+        return value != null && !value.isBlank() ? value : defaultValue;
+    }
+
+    private static int envInt(Dotenv dotenv, String name, int defaultValue) {
+        String value = envString(dotenv, name, null);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
 }
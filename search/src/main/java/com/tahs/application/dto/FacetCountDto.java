@@ -0,0 +1,3 @@
+package com.tahs.application.dto;
+
+public record FacetCountDto(String value, int count) {}
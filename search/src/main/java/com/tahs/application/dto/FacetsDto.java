@@ -0,0 +1,7 @@
+package com.tahs.application.dto;
+
+import java.util.List;
+
+public record FacetsDto(List<FacetCountDto> languages, List<FacetCountDto> authors) {
+    public static final FacetsDto EMPTY = new FacetsDto(List.of(), List.of());
+}
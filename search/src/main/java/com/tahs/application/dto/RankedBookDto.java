@@ -0,0 +1,7 @@
+package com.tahs.application.dto;
+
+public record RankedBookDto(int bookId,
+                            String title,
+                            String author,
+                            String language,
+                            double score) {}
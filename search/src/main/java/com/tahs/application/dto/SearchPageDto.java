@@ -0,0 +1,13 @@
+package com.tahs.application.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public record SearchPageDto(
+        String query,
+        Map<String, List<String>> filters,
+        int count,
+        int offset,
+        int limit,
+        FacetsDto facets
+) {}
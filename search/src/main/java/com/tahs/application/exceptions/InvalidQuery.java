@@ -0,0 +1,7 @@
+package com.tahs.application.exceptions;
+
+public class InvalidQuery extends RuntimeException {
+    public InvalidQuery(String query, String reason) {
+        super("Invalid query '" + query + "': " + reason);
+    }
+}
@@ -0,0 +1,13 @@
+package com.tahs.application.ports;
+
+import com.tahs.application.dto.FacetsDto;
+import com.tahs.domain.MetadataFilter;
+
+import java.util.Optional;
+
+public interface FacetIndex {
+    // Empty until the index has been loaded; callers fall back to the metadata repository.
+    Optional<int[]> filter(int[] sortedBookIds, MetadataFilter filter);
+
+    FacetsDto facets(int[] sortedBookIds);
+}
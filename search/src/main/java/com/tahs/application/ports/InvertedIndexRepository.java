@@ -1,9 +1,24 @@
 package com.tahs.application.ports;
 
 import com.tahs.domain.BooksTerm;
+import com.tahs.domain.DocumentLengths;
 
-import java.util.List;
+import java.time.Instant;
+import java.util.function.Consumer;
 
 public interface InvertedIndexRepository {
     BooksTerm getBooksByTerm(String term);
+
+    DocumentLengths getDocumentLengths();
+
+    // Terms whose postings documents were created at or after `since`; every term when since is null.
+    void forEachTermCreatedSince(Instant since, Consumer<String> action);
+
+    // Identifies the live index; it changes when a rebuild is swapped in, so layers holding
+    // state derived from the index (caches, filters, replicas) know to reload it.
+    String generation();
+
+    // Goes up with every write to the live index (0 when unknown), so derived state can tell
+    // whether it has missed any write since it was built.
+    long writeCount();
 }
@@ -1,9 +1,18 @@
 package com.tahs.application.ports;
 
 import com.tahs.domain.BookMetadata;
+import com.tahs.domain.MetadataFilter;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface MetadataRepository {
-    BookMetadata getById(String bookId);
+    BookMetadata getById(int bookId);
+
+    List<BookMetadata> getByIds(int[] bookIds);
+
+    // Sorted ids among bookIds whose metadata matches the filter.
+    int[] filterIds(int[] bookIds, MetadataFilter filter);
+
+    void forEach(Consumer<BookMetadata> action);
 }
@@ -0,0 +1,227 @@
+package com.tahs.application.query;
+
+import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.domain.BooksTerm;
+import com.tahs.domain.DocumentLengths;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// BM25 top-k over the query's positive terms, restricted to the books the boolean query matched.
+// Uses WAND: each term's score is bounded by its idf, its largest tf and the shortest book, and a
+// book is only scored when the bounds of the lists positioned at or before it can beat the current
+// k-th score. Every other list is skipped forward by galloping, so broad terms are mostly jumped over.
+public class Bm25Ranker {
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    public record ScoredBook(int bookId, double score) {}
+
+    private final InvertedIndexRepository invertedIndexRepository;
+
+    public Bm25Ranker(InvertedIndexRepository invertedIndexRepository) {
+        this.invertedIndexRepository = invertedIndexRepository;
+    }
+
+    public List<ScoredBook> topK(Query query, int[] candidates, int k) {
+        if (k <= 0 || candidates.length == 0) return List.of();
+        DocumentLengths lengths = invertedIndexRepository.getDocumentLengths();
+        List<Cursor> cursors = new ArrayList<>();
+        for (String term : scoringTerms(query)) {
+            BooksTerm postings = invertedIndexRepository.getBooksByTerm(term);
+            if (postings.booksId().length > 0) cursors.add(new Cursor(postings, lengths));
+        }
+        if (cursors.isEmpty()) return List.of();
+        return wand(cursors, candidates, lengths, k);
+    }
+
+    private static List<ScoredBook> wand(List<Cursor> cursors, int[] candidates, DocumentLengths lengths, int k) {
+        TopK top = new TopK(k);
+        int allowed = 0;
+        while (!cursors.isEmpty()) {
+            cursors.sort(Comparator.comparingInt(Cursor::doc));
+            double threshold = top.threshold();
+            double bound = 0;
+            int pivot = -1;
+            for (int i = 0; i < cursors.size(); i++) {
+                bound += cursors.get(i).upperBound;
+                if (bound > threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot < 0) break;
+            int pivotDoc = cursors.get(pivot).doc();
+
+            allowed = Postings.gallop(candidates, allowed, pivotDoc);
+            if (allowed == candidates.length) break;
+            int target = candidates[allowed];
+            if (target > pivotDoc) {
+                advanceBelow(cursors, cursors.size(), target);
+            } else if (cursors.get(0).doc() == pivotDoc) {
+                double score = 0;
+                double length = lengths.length(pivotDoc);
+                for (Cursor cursor : cursors) {
+                    if (cursor.doc() != pivotDoc) break;
+                    score += cursor.score(length);
+                    cursor.skipTo(pivotDoc + 1);
+                }
+                top.offer(pivotDoc, score);
+            } else {
+                advanceBelow(cursors, pivot, pivotDoc);
+            }
+            cursors.removeIf(Cursor::exhausted);
+        }
+        return top.sorted();
+    }
+
+    private static void advanceBelow(List<Cursor> cursors, int end, int target) {
+        for (int i = 0; i < end; i++) {
+            Cursor cursor = cursors.get(i);
+            if (cursor.doc() < target) cursor.skipTo(target);
+        }
+    }
+
+    static Set<String> scoringTerms(Query query) {
+        Set<String> terms = new LinkedHashSet<>();
+        collectTerms(query, terms);
+        return terms;
+    }
+
+    private static void collectTerms(Query query, Set<String> terms) {
+        if (query instanceof Query.Term term) {
+            terms.add(term.term());
+        } else if (query instanceof Query.And and) {
+            for (Query clause : and.clauses()) collectTerms(clause, terms);
+        } else if (query instanceof Query.Or or) {
+            for (Query clause : or.clauses()) collectTerms(clause, terms);
+        }
+    }
+
+    private static final class Cursor {
+        private final int[] bookIds;
+        private final int[] frequencies;
+        private final double idf;
+        private final double averageLength;
+        private final double upperBound;
+        private int position;
+
+        Cursor(BooksTerm postings, DocumentLengths lengths) {
+            this.bookIds = postings.booksId();
+            this.frequencies = postings.frequencies();
+            int documentFrequency = bookIds.length;
+            int books = Math.max(lengths.books(), documentFrequency);
+            this.idf = Math.log(1 + (books - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            this.averageLength = lengths.averageLength();
+            int maxFrequency = 1;
+            for (int tf : frequencies) maxFrequency = Math.max(maxFrequency, tf);
+            this.upperBound = termScore(maxFrequency, Math.min(lengths.minLength(), averageLength));
+        }
+
+        int doc() {
+            return bookIds[position];
+        }
+
+        boolean exhausted() {
+            return position >= bookIds.length;
+        }
+
+        void skipTo(int target) {
+            position = Postings.gallop(bookIds, position, target);
+        }
+
+        double score(double length) {
+            return termScore(frequencies[position], length);
+        }
+
+        private double termScore(int tf, double length) {
+            return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+        }
+    }
+
+    // Bounded min-heap on score; on equal scores the lower book id ranks first.
+    private static final class TopK {
+        private final int capacity;
+        private int[] ids;
+        private double[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            this.capacity = capacity;
+            this.ids = new int[Math.min(capacity, 256)];
+            this.scores = new double[ids.length];
+        }
+
+        double threshold() {
+            return size == capacity ? scores[0] : 0;
+        }
+
+        void offer(int id, double score) {
+            if (size < capacity) {
+                ensureCapacity();
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (worse(0, id, score)) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        List<ScoredBook> sorted() {
+            List<ScoredBook> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) out.add(new ScoredBook(ids[i], scores[i]));
+            out.sort(Comparator.comparingDouble(ScoredBook::score).reversed()
+                    .thenComparingInt(ScoredBook::bookId));
+            return out;
+        }
+
+        // True when the entry at slot ranks below (id, score).
+        private boolean worse(int slot, int id, double score) {
+            return scores[slot] < score || (scores[slot] == score && ids[slot] > id);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(i, ids[parent], scores[parent])) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && worse(left, ids[smallest], scores[smallest])) smallest = left;
+                if (right < size && worse(right, ids[smallest], scores[smallest])) smallest = right;
+                if (smallest == i) return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.min(capacity, ids.length << 1));
+                scores = Arrays.copyOf(scores, ids.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.tahs.application.query;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+// Set operations over sorted, duplicate-free int[] postings.
+public final class Postings {
+    public static final int[] EMPTY = new int[0];
+
+    private Postings() {
+    }
+
+    // Walks the shorter list and gallops through the longer one, so the cost is
+    // O(small * log(large / small)) instead of O(small + large).
+    public static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) return intersect(b, a);
+        int[] out = new int[a.length];
+        int n = 0;
+        int from = 0;
+        for (int id : a) {
+            from = gallop(b, from, id);
+            if (from == b.length) break;
+            if (b[from] == id) out[n++] = id;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    public static int[] difference(int[] a, int[] b) {
+        int[] out = new int[a.length];
+        int n = 0;
+        int from = 0;
+        for (int id : a) {
+            from = gallop(b, from, id);
+            if (from == b.length || b[from] != id) out[n++] = id;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    public static int[] union(int[][] lists) {
+        if (lists.length == 0) return EMPTY;
+        if (lists.length == 1) return lists[0];
+
+        int total = 0;
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(lists.length);
+        for (int[] list : lists) {
+            total += list.length;
+            if (list.length > 0) heap.add(new Cursor(list));
+        }
+        int[] out = new int[total];
+        int n = 0;
+        while (!heap.isEmpty()) {
+            Cursor head = heap.poll();
+            int id = head.current();
+            if (n == 0 || out[n - 1] != id) out[n++] = id;
+            if (head.advance()) heap.add(head);
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    // First index >= from whose value is >= target.
+    static int gallop(int[] list, int from, int target) {
+        if (from >= list.length || list[from] >= target) return from;
+        int step = 1;
+        int low = from;
+        int high = from + 1;
+        while (high < list.length && list[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, list.length);
+        int index = Arrays.binarySearch(list, low + 1, high, target);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final int[] list;
+        private int position;
+
+        Cursor(int[] list) {
+            this.list = list;
+        }
+
+        int current() {
+            return list[position];
+        }
+
+        boolean advance() {
+            return ++position < list.length;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return Integer.compare(current(), other.current());
+        }
+    }
+}
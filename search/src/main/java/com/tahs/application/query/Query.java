@@ -0,0 +1,13 @@
+package com.tahs.application.query;
+
+import java.util.List;
+
+public sealed interface Query {
+    record Term(String term) implements Query {}
+
+    record And(List<Query> clauses) implements Query {}
+
+    record Or(List<Query> clauses) implements Query {}
+
+    record Not(Query clause) implements Query {}
+}
@@ -0,0 +1,57 @@
+package com.tahs.application.query;
+
+import com.tahs.application.ports.InvertedIndexRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+public class QueryEvaluator {
+    private final InvertedIndexRepository invertedIndexRepository;
+
+    public QueryEvaluator(InvertedIndexRepository invertedIndexRepository) {
+        this.invertedIndexRepository = invertedIndexRepository;
+    }
+
+    // A NOT clause only narrows the positive clauses it is ANDed with; on its own
+    // (or under OR) it would need the whole collection, so it matches nothing.
+    public int[] evaluate(Query query) {
+        if (query instanceof Query.Term term) {
+            return invertedIndexRepository.getBooksByTerm(term.term()).booksId();
+        }
+        if (query instanceof Query.Or or) {
+            int[][] lists = new int[or.clauses().size()][];
+            for (int i = 0; i < lists.length; i++) lists[i] = evaluate(or.clauses().get(i));
+            return Postings.union(lists);
+        }
+        if (query instanceof Query.And and) {
+            return evaluateAnd(and);
+        }
+        return Postings.EMPTY;
+    }
+
+    private int[] evaluateAnd(Query.And and) {
+        List<int[]> required = new ArrayList<>();
+        List<Query> excluded = new ArrayList<>();
+        for (Query clause : and.clauses()) {
+            if (clause instanceof Query.Not not) {
+                excluded.add(not.clause());
+            } else {
+                int[] postings = evaluate(clause);
+                if (postings.length == 0) return Postings.EMPTY;
+                required.add(postings);
+            }
+        }
+        if (required.isEmpty()) return Postings.EMPTY;
+
+        required.sort(Comparator.comparingInt(postings -> postings.length));
+        int[] result = required.get(0);
+        for (int i = 1; i < required.size() && result.length > 0; i++) {
+            result = Postings.intersect(result, required.get(i));
+        }
+        for (int i = 0; i < excluded.size() && result.length > 0; i++) {
+            result = Postings.difference(result, evaluate(excluded.get(i)));
+        }
+        return result;
+    }
+}
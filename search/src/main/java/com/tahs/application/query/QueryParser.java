@@ -0,0 +1,96 @@
+package com.tahs.application.query;
+
+import com.tahs.application.exceptions.InvalidQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// query   := or
+// or      := and ("OR" and)*
+// and     := unary (["AND"] unary)*      adjacent terms are ANDed
+// unary   := "NOT" unary | "(" or ")" | term
+public class QueryParser {
+    private final String query;
+    private final List<String> tokens;
+    private int position;
+
+    private QueryParser(String query) {
+        this.query = query;
+        this.tokens = tokenize(query);
+    }
+
+    public static Query parse(String query) {
+        if (query == null || query.isBlank()) throw new InvalidQuery(String.valueOf(query), "empty query");
+        var parser = new QueryParser(query);
+        Query parsed = parser.or();
+        if (parser.position < parser.tokens.size()) {
+            throw new InvalidQuery(query, "unexpected '" + parser.tokens.get(parser.position) + "'");
+        }
+        return parsed;
+    }
+
+    private Query or() {
+        List<Query> clauses = new ArrayList<>();
+        clauses.add(and());
+        while (accept("OR")) clauses.add(and());
+        return clauses.size() == 1 ? clauses.get(0) : new Query.Or(clauses);
+    }
+
+    private Query and() {
+        List<Query> clauses = new ArrayList<>();
+        clauses.add(unary());
+        while (position < tokens.size() && !peek("OR") && !peek(")")) {
+            accept("AND");
+            clauses.add(unary());
+        }
+        return clauses.size() == 1 ? clauses.get(0) : new Query.And(clauses);
+    }
+
+    private Query unary() {
+        if (position >= tokens.size()) throw new InvalidQuery(query, "unexpected end of query");
+        if (accept("NOT")) return new Query.Not(unary());
+        if (accept("(")) {
+            Query inner = or();
+            if (!accept(")")) throw new InvalidQuery(query, "missing ')'");
+            return inner;
+        }
+        String token = tokens.get(position);
+        if (isOperator(token) || token.equals(")")) throw new InvalidQuery(query, "unexpected '" + token + "'");
+        position++;
+        return new Query.Term(token.toLowerCase(Locale.ROOT));
+    }
+
+    private boolean peek(String token) {
+        return position < tokens.size() && tokens.get(position).equals(token);
+    }
+
+    private boolean accept(String token) {
+        if (!peek(token)) return false;
+        position++;
+        return true;
+    }
+
+    private static boolean isOperator(String token) {
+        return token.equals("AND") || token.equals("OR") || token.equals("NOT");
+    }
+
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '(' || c == ')' || Character.isWhitespace(c)) {
+                if (current.length() > 0) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+                if (!Character.isWhitespace(c)) tokens.add(String.valueOf(c));
+            } else {
+                current.append(c);
+            }
+        }
+        if (current.length() > 0) tokens.add(current.toString());
+        return tokens;
+    }
+}
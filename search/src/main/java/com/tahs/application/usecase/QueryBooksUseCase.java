@@ -1,62 +1,162 @@
 package com.tahs.application.usecase;
 
+import com.tahs.application.dto.FacetsDto;
+import com.tahs.application.dto.RankedBookDto;
 import com.tahs.application.dto.SearchDto;
+import com.tahs.application.dto.SearchPageDto;
+import com.tahs.application.exceptions.InvalidQuery;
+import com.tahs.application.ports.FacetIndex;
 import com.tahs.application.ports.InvertedIndexRepository;
 import com.tahs.application.ports.MetadataRepository;
+import com.tahs.application.query.Bm25Ranker;
+import com.tahs.application.query.Query;
+import com.tahs.application.query.QueryEvaluator;
+import com.tahs.application.query.QueryParser;
 import com.tahs.domain.BookMetadata;
+import com.tahs.domain.MetadataFilter;
 import org.jetbrains.annotations.Nullable;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class QueryBooksUseCase {
+    private static final int STREAM_CHUNK = 500;
 
-    private final InvertedIndexRepository invertedIndexRepository;
+    private final QueryEvaluator queryEvaluator;
+    private final Bm25Ranker ranker;
     private final MetadataRepository metadataRepository;
+    private final FacetIndex facetIndex;
+    private final int defaultLimit;
+    private final int maxWindow;
 
-    public QueryBooksUseCase(InvertedIndexRepository invertedIndexRepository, MetadataRepository metadataRepository) {
-        this.invertedIndexRepository = invertedIndexRepository;
+    private record Ranked(int count, List<Bm25Ranker.ScoredBook> page, FacetsDto facets) {}
+
+    // Parsed query plus filters and page, so differently spelled but equivalent requests coalesce.
+    // Streamed requests only share the ranking; their metadata is fetched chunk by chunk.
+    private record FlightKey(Query query, MetadataFilter filter, int offset, int limit, boolean withBooks) {}
+
+    private record Flight(Ranked ranked, List<RankedBookDto> books) {}
+
+    private final SingleFlight<FlightKey, Flight> inFlight = new SingleFlight<>();
+
+    public QueryBooksUseCase(InvertedIndexRepository invertedIndexRepository, MetadataRepository metadataRepository,
+                             FacetIndex facetIndex, int defaultLimit, int maxWindow) {
+        this.queryEvaluator = new QueryEvaluator(invertedIndexRepository);
+        this.ranker = new Bm25Ranker(invertedIndexRepository);
         this.metadataRepository = metadataRepository;
+        this.facetIndex = facetIndex;
+        this.defaultLimit = defaultLimit;
+        this.maxWindow = maxWindow;
     }
 
     public SearchDto execute(Map<String, List<String>> params) {
-        var term = getTermValue(params);
-        var booksTerm = invertedIndexRepository.getBooksByTerm(term);
-        List<BookMetadata> books = new ArrayList<>();
-        for (String bookId : booksTerm.booksId()){
-            books.add(metadataRepository.getById(bookId));
-        }
-        var bookMetadata = books.stream().filter(book -> matches(book, params)).toList();
+        var key = flightKey(params, true);
+        Flight flight = inFlight.execute(key, () -> {
+            Ranked ranked = rank(key);
+            return new Flight(ranked, toRankedBooks(ranked.page(), metadataFor(ranked.page())));
+        });
         return new SearchDto(
-                term,
+                getTermValue(params),
                 params,
-                bookMetadata.size(),
-                bookMetadata
+                flight.ranked().count(),
+                key.offset(),
+                key.limit(),
+                flight.ranked().facets(),
+                flight.books()
         );
     }
 
-    private boolean matches(BookMetadata book, Map<String, List<String>> params) {
-        if (params.containsKey("author")) {
-            return book.author().equals(getAuthorValue(params));
+    // Sends the page header first, then the page's books in chunks, fetching metadata one chunk
+    // at a time so a large page is never held in memory as a whole.
+    public void stream(Map<String, List<String>> params, Consumer<SearchPageDto> onPage,
+                       Consumer<List<RankedBookDto>> onChunk) {
+        var key = flightKey(params, false);
+        Ranked ranked = inFlight.execute(key, () -> new Flight(rank(key), null)).ranked();
+        onPage.accept(new SearchPageDto(getTermValue(params), params, ranked.count(), key.offset(), key.limit(),
+                ranked.facets()));
+        List<Bm25Ranker.ScoredBook> page = ranked.page();
+        for (int from = 0; from < page.size(); from += STREAM_CHUNK) {
+            var chunk = page.subList(from, Math.min(from + STREAM_CHUNK, page.size()));
+            onChunk.accept(toRankedBooks(chunk, metadataFor(chunk)));
         }
-        if (params.containsKey("language")) {
-            return book.language().equals(getLanguageValue(params));
+    }
+
+    public SingleFlight.Stats inFlightStats() {
+        return inFlight.stats();
+    }
+
+    private FlightKey flightKey(Map<String, List<String>> params, boolean withBooks) {
+        int offset = getIntValue(params, "offset", 0);
+        int limit = getIntValue(params, "limit", defaultLimit);
+        if ((long) offset + limit > maxWindow) {
+            throw new InvalidQuery("offset=" + offset + "&limit=" + limit,
+                    "offset + limit must not exceed " + maxWindow);
         }
-        return true;
+        Query query = QueryParser.parse(getTermValue(params));
+        var filter = new MetadataFilter(getAuthorValue(params), getLanguageValue(params));
+        return new FlightKey(query, filter, offset, limit, withBooks);
     }
 
+    private Ranked rank(FlightKey key) {
+        int[] bookIds = queryEvaluator.evaluate(key.query());
+        var filter = key.filter();
+        if (!filter.isEmpty()) {
+            int[] candidates = bookIds;
+            bookIds = facetIndex.filter(candidates, filter)
+                    .orElseGet(() -> metadataRepository.filterIds(candidates, filter));
+        }
+
+        int offset = key.offset();
+        var top = ranker.topK(key.query(), bookIds, offset + key.limit());
+        var page = offset >= top.size() ? List.<Bm25Ranker.ScoredBook>of() : top.subList(offset, top.size());
+        return new Ranked(bookIds.length, page, facetIndex.facets(bookIds));
+    }
+
+    private Map<Integer, BookMetadata> metadataFor(List<Bm25Ranker.ScoredBook> books) {
+        Map<Integer, BookMetadata> metadataById = new HashMap<>();
+        if (books.isEmpty()) return metadataById;
+        int[] ids = books.stream().mapToInt(Bm25Ranker.ScoredBook::bookId).toArray();
+        for (BookMetadata book : metadataRepository.getByIds(ids)) metadataById.put(book.bookId(), book);
+        return metadataById;
+    }
+
+    private static List<RankedBookDto> toRankedBooks(List<Bm25Ranker.ScoredBook> books,
+                                                     Map<Integer, BookMetadata> metadataById) {
+        return books.stream()
+                .filter(scored -> metadataById.containsKey(scored.bookId()))
+                .map(scored -> toRankedBook(metadataById.get(scored.bookId()), scored.score()))
+                .toList();
+    }
+
+    private static RankedBookDto toRankedBook(BookMetadata book, double score) {
+        return new RankedBookDto(book.bookId(), book.title(), book.author(), book.language(), score);
+    }
+
+
     @Nullable
     private static String getTermValue(Map<String, List<String>> params) {
         return params.get("q").stream().findFirst().orElse(null);
     }
 
+    private static int getIntValue(Map<String, List<String>> params, String name, int defaultValue) {
+        var value = params.getOrDefault(name, List.of()).stream().findFirst().orElse(null);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= 0) return parsed;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new InvalidQuery(name + "=" + value, name + " must be a non-negative integer");
+    }
+
     @Nullable
     private String getAuthorValue(Map<String, List<String>> params) {
-        return params.get("author").stream().findFirst().orElse(null);
+        return params.getOrDefault("author", List.of()).stream().filter(value -> !value.isBlank()).findFirst().orElse(null);
     }
     @Nullable
     private String getLanguageValue(Map<String, List<String>> params) {
-        return params.get("language").stream().findFirst().orElse(null);
+        return params.getOrDefault("language", List.of()).stream().filter(value -> !value.isBlank()).findFirst().orElse(null);
     }
 
     @Nullable
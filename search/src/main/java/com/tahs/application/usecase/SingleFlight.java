@@ -0,0 +1,64 @@
+package com.tahs.application.usecase;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Coalesces concurrent calls with an equal key: the first caller computes on its own thread,
+// later callers wait on the same CompletableFuture and get its result (or its exception).
+// The key is removed once the computation finishes, so nothing is cached beyond the flight.
+public class SingleFlight<K, V> {
+
+    public record Stats(long leaders, long coalesced, int inFlight, int waiting, int maxWaiters) {}
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger maxWaiters = new AtomicInteger();
+
+    public V execute(K key, Supplier<V> computation) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) return await(existing);
+
+        leaders.incrementAndGet();
+        try {
+            V value = computation.get();
+            flight.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(leaders.get(), coalesced.get(), flights.size(), waiting.get(), maxWaiters.get());
+    }
+
+    private V await(Flight<V> flight) {
+        coalesced.incrementAndGet();
+        maxWaiters.accumulateAndGet(flight.waiters.incrementAndGet(), Math::max);
+        waiting.incrementAndGet();
+        try {
+            return flight.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+}
@@ -5,5 +5,20 @@ public record AppConfig(
         String collectionMetadataName,
         String collectionIndexName,
         String databaseName,
-        int port) {
+        int port,
+        long postingsCacheBytes,
+        int postingsCacheTtlSeconds,
+        int metadataCacheEntries,
+        int topK,
+        int maxResultWindow,
+        int facetRefreshSeconds,
+        int facetTopAuthors,
+        int termFilterRefreshSeconds,
+        double termFilterFalsePositiveRate,
+        boolean replicaEnabled,
+        int replicaChunkBytes,
+        int replicaRefreshSeconds,
+        String indexStore,
+        String indexDir,
+        int indexRefreshMillis) {
 }
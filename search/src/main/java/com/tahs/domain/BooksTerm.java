@@ -1,8 +1,7 @@
 package com.tahs.domain;
 
-import java.util.List;
-
 public record BooksTerm (
     String term,
-    List<String> booksId
+    int[] booksId,
+    int[] frequencies
 ){}
@@ -0,0 +1,12 @@
+package com.tahs.domain;
+
+// Token count of every indexed book, stored densely by book id.
+public record DocumentLengths(int[] lengthsByBookId, int books, double averageLength, int minLength) {
+    public static final DocumentLengths EMPTY = new DocumentLengths(new int[0], 0, 1, 1);
+
+    // Books indexed before lengths were recorded count as average length.
+    public double length(int bookId) {
+        if (bookId < 0 || bookId >= lengthsByBookId.length || lengthsByBookId[bookId] == 0) return averageLength;
+        return lengthsByBookId[bookId];
+    }
+}
@@ -0,0 +1,8 @@
+package com.tahs.domain;
+
+// Exact-match metadata constraints; a null field is not constrained.
+public record MetadataFilter(String author, String language) {
+    public boolean isEmpty() {
+        return author == null && language == null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.tahs.infrastructure.cache;
+
+import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.domain.BooksTerm;
+import com.tahs.domain.DocumentLengths;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Negative cache for the term dictionary. A Bloom filter over every indexed term answers
+// lookups for absent terms (typos, junk) with empty postings and no database call. All terms
+// are loaded at startup; afterwards only postings documents created since the previous poll
+// are scanned, with an overlap for clock skew. Keys are counted per (term, bucket) document, an
+// over-estimate of distinct terms; once the count passes the size the filter was built for, it is
+// rebuilt at twice that count. A swapped-in rebuild (new generation) also triggers a full reload.
+// Until the first load completes, every lookup goes to the delegate. A filter miss is only trusted
+// while the index's write count still equals the one read before the last poll; otherwise the
+// lookup goes to the delegate and a poll is queued, so terms indexed since then are never hidden.
+public class BloomFilterInvertedIndexRepository implements InvertedIndexRepository {
+    private static final long MIN_EXPECTED_TERMS = 1 << 20;
+    private static final Duration POLL_OVERLAP = Duration.ofSeconds(60);
+
+    public record Stats(boolean loaded, long keysAdded, long capacity, long sizeBytes, long rejected, long passed) {}
+
+    private final InvertedIndexRepository delegate;
+    private final double falsePositiveRate;
+    private final ScheduledExecutorService refresher;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong passed = new AtomicLong();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private volatile BloomFilter filter;
+    private volatile long keysAdded;
+    private volatile long filterWriteCount = -1;
+    private Instant lastPoll;
+    private String loadedGeneration;
+
+    public BloomFilterInvertedIndexRepository(InvertedIndexRepository delegate, double falsePositiveRate,
+                                              Duration pollInterval) {
+        this.delegate = delegate;
+        this.falsePositiveRate = falsePositiveRate;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "term-filter-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long seconds = Math.max(1, pollInterval.toSeconds());
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, seconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public BooksTerm getBooksByTerm(String term) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(term)) {
+            if (delegate.writeCount() == filterWriteCount) {
+                rejected.incrementAndGet();
+                return new BooksTerm(term, new int[0], new int[0]);
+            }
+            queueRefresh();
+        }
+        passed.incrementAndGet();
+        return delegate.getBooksByTerm(term);
+    }
+
+    @Override
+    public DocumentLengths getDocumentLengths() {
+        return delegate.getDocumentLengths();
+    }
+
+    @Override
+    public void forEachTermCreatedSince(Instant since, Consumer<String> action) {
+        delegate.forEachTermCreatedSince(since, action);
+    }
+
+    @Override
+    public String generation() {
+        return delegate.generation();
+    }
+
+    @Override
+    public long writeCount() {
+        return delegate.writeCount();
+    }
+
+    public Stats stats() {
+        BloomFilter current = filter;
+        return new Stats(current != null, keysAdded, current != null ? current.capacity() : 0,
+                current != null ? current.sizeBytes() : 0, rejected.get(), passed.get());
+    }
+
+    // Runs on the refresher thread only.
+    void refresh() {
+        Instant pollStartedAt = Instant.now();
+        long writeCount = delegate.writeCount();
+        BloomFilter current = filter;
+        String generation = delegate.generation();
+        if (current == null || keysAdded > current.capacity() || !generation.equals(loadedGeneration)) {
+            reload(pollStartedAt, Math.max(MIN_EXPECTED_TERMS, 2 * keysAdded));
+            loadedGeneration = generation;
+            filterWriteCount = writeCount;
+            return;
+        }
+        long[] added = {0};
+        delegate.forEachTermCreatedSince(lastPoll.minus(POLL_OVERLAP), term -> {
+            current.add(term);
+            added[0]++;
+        });
+        keysAdded += added[0];
+        lastPoll = pollStartedAt;
+        filterWriteCount = writeCount;
+    }
+
+    private void reload(Instant startedAt, long expectedTerms) {
+        BloomFilter rebuilt = new BloomFilter(expectedTerms, falsePositiveRate);
+        long[] count = {0};
+        delegate.forEachTermCreatedSince(null, term -> {
+            rebuilt.add(term);
+            count[0]++;
+        });
+        filter = rebuilt;
+        keysAdded = count[0];
+        lastPoll = startedAt;
+        System.out.println("Term filter loaded: " + count[0] + " terms, " + (rebuilt.sizeBytes() >> 10) + " KB");
+    }
+
+    private void queueRefresh() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                refreshQueued.set(false);
+                refreshQuietly();
+            });
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            System.err.println("Term filter refresh failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.tahs.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.domain.BooksTerm;
+import com.tahs.domain.DocumentLengths;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+// Read-through postings cache. Caffeine's W-TinyLFU policy only admits a new term when it is
+// requested more often than the entry it would evict, so one-off queries do not flush hot terms.
+public class CachingInvertedIndexRepository implements InvertedIndexRepository {
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    public record Stats(long hits, long misses, long evictions, double hitRate,
+                        long entries, long weightBytes, long maxWeightBytes) {}
+
+    private final InvertedIndexRepository delegate;
+    private final Cache<String, BooksTerm> cache;
+    private final Cache<Boolean, DocumentLengths> documentLengths;
+    private final long maxWeightBytes;
+    private volatile String generation;
+
+    public CachingInvertedIndexRepository(InvertedIndexRepository delegate, long maxWeightBytes, Duration ttl) {
+        this.delegate = delegate;
+        this.maxWeightBytes = maxWeightBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String term, BooksTerm postings) -> weigh(term, postings))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.documentLengths = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public BooksTerm getBooksByTerm(String term) {
+        return cache.get(term, delegate::getBooksByTerm);
+    }
+
+    @Override
+    public DocumentLengths getDocumentLengths() {
+        return documentLengths.get(Boolean.TRUE, key -> delegate.getDocumentLengths());
+    }
+
+    @Override
+    public void forEachTermCreatedSince(Instant since, Consumer<String> action) {
+        delegate.forEachTermCreatedSince(since, action);
+    }
+
+    // Cached postings belong to one generation; the first call that sees a new one drops them.
+    @Override
+    public String generation() {
+        String current = delegate.generation();
+        String previous = generation;
+        generation = current;
+        if (previous != null && !previous.equals(current)) invalidateAll();
+        return current;
+    }
+
+    @Override
+    public long writeCount() {
+        return delegate.writeCount();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        documentLengths.invalidateAll();
+    }
+
+    public Stats stats() {
+        CacheStats stats = cache.stats();
+        long weight = cache.policy().eviction()
+                .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                .orElse(0L);
+        return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate(),
+                cache.estimatedSize(), weight, maxWeightBytes);
+    }
+
+    private static int weigh(String term, BooksTerm postings) {
+        long bytes = ENTRY_OVERHEAD_BYTES + 2L * term.length() + 8L * postings.booksId().length;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
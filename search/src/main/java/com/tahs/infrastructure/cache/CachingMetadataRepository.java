@@ -0,0 +1,109 @@
+package com.tahs.infrastructure.cache;
+
+import com.tahs.application.ports.MetadataRepository;
+import com.tahs.domain.BookMetadata;
+import com.tahs.domain.MetadataFilter;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Metadata is small and rarely changes, so every book seen is kept in an int-keyed
+// map (no boxing) until the map is full or the TTL elapses.
+public class CachingMetadataRepository implements MetadataRepository {
+    private final MetadataRepository delegate;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Int2ObjectOpenHashMap<BookMetadata> entries = new Int2ObjectOpenHashMap<>();
+    private long loadedAtNanos = System.nanoTime();
+
+    public CachingMetadataRepository(MetadataRepository delegate, int maxEntries, Duration ttl) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    public BookMetadata getById(int bookId) {
+        var books = getByIds(new int[]{bookId});
+        if (books.isEmpty()) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        return books.get(0);
+    }
+
+    @Override
+    public List<BookMetadata> getByIds(int[] bookIds) {
+        BookMetadata[] found = new BookMetadata[bookIds.length];
+        int[] missing = new int[bookIds.length];
+        int missingCount = 0;
+        lock.readLock().lock();
+        try {
+            boolean expired = System.nanoTime() - loadedAtNanos > ttlNanos;
+            for (int i = 0; i < bookIds.length; i++) {
+                found[i] = expired ? null : entries.get(bookIds[i]);
+                if (found[i] == null) missing[missingCount++] = bookIds[i];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (missingCount > 0) {
+            var loaded = delegate.getByIds(Arrays.copyOf(missing, missingCount));
+            Int2ObjectOpenHashMap<BookMetadata> byId = new Int2ObjectOpenHashMap<>();
+            for (BookMetadata book : loaded) byId.put(book.bookId(), book);
+            for (int i = 0; i < bookIds.length; i++) {
+                if (found[i] == null) found[i] = byId.get(bookIds[i]);
+            }
+            remember(loaded);
+        }
+
+        List<BookMetadata> books = new ArrayList<>(bookIds.length);
+        for (BookMetadata book : found) {
+            if (book != null) books.add(book);
+        }
+        return books;
+    }
+
+    @Override
+    public int[] filterIds(int[] bookIds, MetadataFilter filter) {
+        return delegate.filterIds(bookIds, filter);
+    }
+
+    @Override
+    public void forEach(Consumer<BookMetadata> action) {
+        delegate.forEach(action);
+    }
+
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            entries = new Int2ObjectOpenHashMap<>();
+            loadedAtNanos = System.nanoTime();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remember(List<BookMetadata> books) {
+        lock.writeLock().lock();
+        try {
+            if (System.nanoTime() - loadedAtNanos > ttlNanos) {
+                entries = new Int2ObjectOpenHashMap<>();
+                loadedAtNanos = System.nanoTime();
+            }
+            for (BookMetadata book : books) {
+                if (entries.size() >= maxEntries) break;
+                entries.put(book.bookId(), book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.tahs.infrastructure.facets;
+
+import com.tahs.application.dto.FacetCountDto;
+import com.tahs.application.dto.FacetsDto;
+import com.tahs.application.ports.FacetIndex;
+import com.tahs.application.ports.MetadataRepository;
+import com.tahs.domain.BookMetadata;
+import com.tahs.domain.MetadataFilter;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Compressed bitmaps of book ids per language and per normalized author, rebuilt from the
+// metadata collection in the background. Filters become bitmap ANDs and facet counts
+// AND-cardinalities over the query's matches, so no metadata is loaded per query.
+public class MetadataBitmapIndex implements FacetIndex {
+    private final MetadataRepository metadataRepository;
+    private final int topAuthors;
+    private final ScheduledExecutorService refresher;
+    private volatile Snapshot snapshot;
+
+    private record Facet(String label, RoaringBitmap books) {}
+
+    private record Snapshot(Map<String, Facet> languages, Map<String, Facet> authors) {}
+
+    public MetadataBitmapIndex(MetadataRepository metadataRepository, int topAuthors, Duration refreshInterval) {
+        this.metadataRepository = metadataRepository;
+        this.topAuthors = topAuthors;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "facet-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long seconds = Math.max(1, refreshInterval.toSeconds());
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, seconds, TimeUnit.SECONDS);
+    }
+
+    public void refresh() {
+        Map<String, Facet> languages = new HashMap<>();
+        Map<String, Facet> authors = new HashMap<>();
+        long[] books = {0};
+        metadataRepository.forEach(book -> {
+            add(languages, book.language(), book);
+            add(authors, book.author(), book);
+            books[0]++;
+        });
+        for (Facet facet : languages.values()) facet.books().runOptimize();
+        for (Facet facet : authors.values()) facet.books().runOptimize();
+        snapshot = new Snapshot(languages, authors);
+        System.out.println("Facet bitmaps refreshed: " + books[0] + " books, " + languages.size()
+                + " languages, " + authors.size() + " authors");
+    }
+
+    @Override
+    public Optional<int[]> filter(int[] sortedBookIds, MetadataFilter filter) {
+        Snapshot current = snapshot;
+        if (current == null) return Optional.empty();
+        RoaringBitmap matches = RoaringBitmap.bitmapOf(sortedBookIds);
+        if (filter.language() != null) matches.and(booksOf(current.languages(), filter.language()));
+        if (filter.author() != null) matches.and(booksOf(current.authors(), filter.author()));
+        return Optional.of(matches.toArray());
+    }
+
+    @Override
+    public FacetsDto facets(int[] sortedBookIds) {
+        Snapshot current = snapshot;
+        if (current == null || sortedBookIds.length == 0) return FacetsDto.EMPTY;
+        RoaringBitmap matches = RoaringBitmap.bitmapOf(sortedBookIds);
+        return new FacetsDto(
+                counts(current.languages(), matches, Integer.MAX_VALUE),
+                counts(current.authors(), matches, topAuthors));
+    }
+
+    private static List<FacetCountDto> counts(Map<String, Facet> facets, RoaringBitmap matches, int limit) {
+        List<FacetCountDto> counts = new ArrayList<>();
+        for (Facet facet : facets.values()) {
+            int count = RoaringBitmap.andCardinality(facet.books(), matches);
+            if (count > 0) counts.add(new FacetCountDto(facet.label(), count));
+        }
+        counts.sort(Comparator.comparingInt(FacetCountDto::count).reversed().thenComparing(FacetCountDto::value));
+        return counts.size() > limit ? List.copyOf(counts.subList(0, limit)) : counts;
+    }
+
+    private static RoaringBitmap booksOf(Map<String, Facet> facets, String value) {
+        Facet facet = facets.get(normalize(value));
+        return facet != null ? facet.books() : new RoaringBitmap();
+    }
+
+    private static void add(Map<String, Facet> facets, String value, BookMetadata book) {
+        if (value == null || value.isBlank()) return;
+        facets.computeIfAbsent(normalize(value), key -> new Facet(value.trim(), new RoaringBitmap()))
+                .books().add(book.bookId());
+    }
+
+    // Case- and whitespace-insensitive, so "Austen,  Jane" and "austen, jane" share a bitmap.
+    static String normalize(String value) {
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            System.err.println("Facet bitmap refresh failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.tahs.infrastructure.memory;
+
+import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.domain.BooksTerm;
+import com.tahs.domain.DocumentLengths;
+import com.tahs.infrastructure.persistence.MongoInvertedIndexRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// In-memory replica of the inverted index. Every term's merged postings are copied into an
+// OffHeapPostingsStore at startup, and lookups never reach MongoDB. The replica then polls for
+// bucket documents whose updated_at is newer than the previous poll, with an overlap for clock
+// skew, and re-copies those terms. When replaced records make up more than half of the store,
+// the whole index is reloaded into a fresh store and swapped in; so is a swapped-in rebuild.
+public class OffHeapInvertedIndexRepository implements InvertedIndexRepository {
+    private static final Duration POLL_OVERLAP = Duration.ofSeconds(60);
+
+    public record Stats(boolean loaded, int terms, long offHeapBytes, long usedBytes, long garbageBytes,
+                        long refreshedTerms, Instant lastRefresh) {}
+
+    private final MongoInvertedIndexRepository source;
+    private final int chunkBytes;
+    private final ScheduledExecutorService refresher;
+    private volatile OffHeapPostingsStore store;
+    private volatile DocumentLengths documentLengths = DocumentLengths.EMPTY;
+    private volatile long refreshedTerms;
+    private volatile Instant lastRefresh;
+    private String loadedGeneration;
+
+    public OffHeapInvertedIndexRepository(MongoInvertedIndexRepository source, int chunkBytes, Duration refreshInterval) {
+        this.source = source;
+        this.chunkBytes = chunkBytes;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long seconds = Math.max(1, refreshInterval.toSeconds());
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, seconds, seconds, TimeUnit.SECONDS);
+        reload(Instant.now());
+    }
+
+    @Override
+    public BooksTerm getBooksByTerm(String term) {
+        BooksTerm postings = store.get(term);
+        return postings != null ? postings : new BooksTerm(term, new int[0], new int[0]);
+    }
+
+    @Override
+    public DocumentLengths getDocumentLengths() {
+        return documentLengths;
+    }
+
+    @Override
+    public void forEachTermCreatedSince(Instant since, Consumer<String> action) {
+        source.forEachTermCreatedSince(since, action);
+    }
+
+    @Override
+    public String generation() {
+        return source.generation();
+    }
+
+    @Override
+    public long writeCount() {
+        return source.writeCount();
+    }
+
+    public Stats stats() {
+        OffHeapPostingsStore current = store;
+        return new Stats(current != null, current != null ? current.terms() : 0,
+                current != null ? current.offHeapBytes() : 0, current != null ? current.usedBytes() : 0,
+                current != null ? current.garbageBytes() : 0, refreshedTerms, lastRefresh);
+    }
+
+    // Runs on the refresher thread only (and once from the constructor, before it starts).
+    void refresh() {
+        Instant startedAt = Instant.now();
+        OffHeapPostingsStore current = store;
+        if (current.garbageBytes() > current.usedBytes() / 2 || !source.generation().equals(loadedGeneration)) {
+            reload(startedAt);
+            return;
+        }
+        long[] count = {0};
+        source.forEachTermPostings(lastRefresh.minus(POLL_OVERLAP), postings -> {
+            current.put(postings.term(), postings.booksId(), postings.frequencies());
+            count[0]++;
+        });
+        documentLengths = source.getDocumentLengths();
+        refreshedTerms += count[0];
+        lastRefresh = startedAt;
+    }
+
+    private void reload(Instant startedAt) {
+        loadedGeneration = source.generation();
+        OffHeapPostingsStore rebuilt = new OffHeapPostingsStore(chunkBytes, 1 << 16);
+        source.forEachTermPostings(null, postings ->
+                rebuilt.put(postings.term(), postings.booksId(), postings.frequencies()));
+        documentLengths = source.getDocumentLengths();
+        store = rebuilt;
+        lastRefresh = startedAt;
+        System.out.println("Replica loaded: " + rebuilt.terms() + " terms, "
+                + (rebuilt.usedBytes() >> 20) + " MB off-heap");
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            System.err.println("Replica refresh failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.tahs.infrastructure.memory;
+
+import com.tahs.domain.BooksTerm;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Term dictionary and postings kept in direct (off-heap) buffers, so they are never traced by
+// the GC. Records are appended to fixed-size chunks:
+//   [int termBytes][UTF-8 term, padded to 4][int count][count book ids][count frequencies]
+// and found through an open-addressing table of record pointers ((chunk + 1) << 32 | offset).
+// There is a single writer; a slot is published with a release store after its record is
+// written, so readers that see the pointer also see the record. Replacing a term appends a
+// new record and leaves the old one as garbage until the store is rebuilt.
+final class OffHeapPostingsStore {
+    private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final int chunkBytes;
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile ByteBuffer table;
+    private int slots;
+    private int terms;
+    private int writeOffset;
+    private long usedBytes;
+    private long garbageBytes;
+
+    OffHeapPostingsStore(int chunkBytes, int expectedTerms) {
+        this.chunkBytes = chunkBytes;
+        this.slots = Integer.highestOneBit(Math.max(16, expectedTerms * 2 - 1)) << 1;
+        this.table = ByteBuffer.allocateDirect(slots * Long.BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    BooksTerm get(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer current = table;
+        int mask = current.capacity() / Long.BYTES - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long pointer = (long) SLOTS.getAcquire(current, slot * Long.BYTES);
+            if (pointer == 0) return null;
+            ByteBuffer chunk = chunks[(int) (pointer >>> 32) - 1];
+            int offset = (int) pointer;
+            if (sameTerm(chunk, offset, key)) return read(term, chunk, offset + 4 + padded(key.length));
+        }
+    }
+
+    void put(String term, int[] bookIds, int[] frequencies) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int recordBytes = 4 + padded(key.length) + 4 + 8 * bookIds.length;
+        long pointer = append(key, bookIds, frequencies, recordBytes);
+        usedBytes += recordBytes;
+
+        if ((terms + 1) * 2 > slots) resize();
+        ByteBuffer current = table;
+        int mask = slots - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long existing = (long) SLOTS.getAcquire(current, slot * Long.BYTES);
+            if (existing == 0) {
+                terms++;
+                SLOTS.setRelease(current, slot * Long.BYTES, pointer);
+                return;
+            }
+            ByteBuffer chunk = chunks[(int) (existing >>> 32) - 1];
+            int offset = (int) existing;
+            if (sameTerm(chunk, offset, key)) {
+                garbageBytes += recordBytes(chunk, offset);
+                SLOTS.setRelease(current, slot * Long.BYTES, pointer);
+                return;
+            }
+        }
+    }
+
+    int terms() {
+        return terms;
+    }
+
+    long offHeapBytes() {
+        return (long) chunks.length * chunkBytes + table.capacity();
+    }
+
+    long usedBytes() {
+        return usedBytes;
+    }
+
+    long garbageBytes() {
+        return garbageBytes;
+    }
+
+    private long append(byte[] key, int[] bookIds, int[] frequencies, int recordBytes) {
+        ByteBuffer[] current = chunks;
+        if (current.length == 0 || writeOffset + recordBytes > current[current.length - 1].capacity()) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect(Math.max(chunkBytes, recordBytes)).order(ByteOrder.nativeOrder());
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = chunk;
+            chunks = current;
+            writeOffset = 0;
+        }
+        ByteBuffer chunk = current[current.length - 1];
+        int offset = writeOffset;
+        chunk.putInt(offset, key.length);
+        chunk.put(offset + 4, key);
+        int position = offset + 4 + padded(key.length);
+        chunk.putInt(position, bookIds.length);
+        position += 4;
+        chunk.slice(position, 4 * bookIds.length).order(ByteOrder.nativeOrder()).asIntBuffer().put(bookIds);
+        position += 4 * bookIds.length;
+        chunk.slice(position, 4 * frequencies.length).order(ByteOrder.nativeOrder()).asIntBuffer().put(frequencies);
+        writeOffset = offset + recordBytes;
+        return ((long) current.length << 32) | offset;
+    }
+
+    private static BooksTerm read(String term, ByteBuffer chunk, int position) {
+        int count = chunk.getInt(position);
+        int[] bookIds = new int[count];
+        int[] frequencies = new int[count];
+        chunk.slice(position + 4, 4 * count).order(ByteOrder.nativeOrder()).asIntBuffer().get(bookIds);
+        chunk.slice(position + 4 + 4 * count, 4 * count).order(ByteOrder.nativeOrder()).asIntBuffer().get(frequencies);
+        return new BooksTerm(term, bookIds, frequencies);
+    }
+
+    private void resize() {
+        int newSlots = slots << 1;
+        ByteBuffer resized = ByteBuffer.allocateDirect(newSlots * Long.BYTES).order(ByteOrder.nativeOrder());
+        ByteBuffer current = table;
+        for (int i = 0; i < slots; i++) {
+            long pointer = (long) SLOTS.getAcquire(current, i * Long.BYTES);
+            if (pointer == 0) continue;
+            ByteBuffer chunk = chunks[(int) (pointer >>> 32) - 1];
+            int offset = (int) pointer;
+            byte[] key = new byte[chunk.getInt(offset)];
+            chunk.get(offset + 4, key);
+            int slot = hash(key) & (newSlots - 1);
+            while (resized.getLong(slot * Long.BYTES) != 0) slot = (slot + 1) & (newSlots - 1);
+            resized.putLong(slot * Long.BYTES, pointer);
+        }
+        slots = newSlots;
+        table = resized;
+    }
+
+    private static boolean sameTerm(ByteBuffer chunk, int offset, byte[] key) {
+        if (chunk.getInt(offset) != key.length) return false;
+        for (int i = 0; i < key.length; i++) {
+            if (chunk.get(offset + 4 + i) != key[i]) return false;
+        }
+        return true;
+    }
+
+    private static int recordBytes(ByteBuffer chunk, int offset) {
+        int keyBytes = padded(chunk.getInt(offset));
+        return 4 + keyBytes + 4 + 8 * chunk.getInt(offset + 4 + keyBytes);
+    }
+
+    private static int padded(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    private static int hash(byte[] key) {
+        int hash = 0x811c9dc5;
+        for (byte b : key) hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        return hash ^ (hash >>> 16);
+    }
+}
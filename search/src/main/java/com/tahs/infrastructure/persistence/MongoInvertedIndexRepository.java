@@ -2,31 +2,217 @@ package com.tahs.infrastructure.persistence;
 
 import com.mongodb.client.*;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 import com.tahs.application.ports.InvertedIndexRepository;
 import com.tahs.domain.BooksTerm;
+import com.tahs.domain.DocumentLengths;
 import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 public class MongoInvertedIndexRepository implements InvertedIndexRepository {
+    private static final int TERM_BATCH_SIZE = 1000;
+    private static final AtomicBoolean LEGACY_WARNED = new AtomicBoolean();
     private final MongoDatabase database;
     private final MongoCollection<Document> collection;
+    private final MongoCollection<Document> lengths;
+    private final MongoCollection<Document> counters;
+    private final String collectionName;
 
     public MongoInvertedIndexRepository(MongoClient mongoClient, String databaseName, String collectionName) {
         this.database = mongoClient.getDatabase(databaseName);
         this.collection = this.database.getCollection(collectionName);
+        this.lengths = this.database.getCollection(collectionName + "_lengths");
+        this.counters = this.database.getCollection(collectionName + "_stats");
+        this.collectionName = collectionName;
     }
 
     @Override
     public BooksTerm getBooksByTerm(String term) {
-        var termDocument = this.collection.find((Filters.eq("term", term))).first();
-        if(termDocument == null) {
-            throw new IllegalArgumentException("Term not found");
+        BooksTerm[] found = {null};
+        forEachGrouped(this.collection.find(Filters.eq("term", term)).sort(Sorts.ascending("bucket")),
+                postings -> found[0] = postings);
+        return found[0] != null ? found[0] : new BooksTerm(term, new int[0], new int[0]);
+    }
+
+    // Merged postings of every term (updatedSince == null), or of the terms with a bucket
+    // document written at or after updatedSince.
+    public void forEachTermPostings(Instant updatedSince, Consumer<BooksTerm> action) {
+        if (updatedSince == null) {
+            forEachGrouped(this.collection.find().sort(Sorts.ascending("term", "bucket")), action);
+            return;
+        }
+        Set<String> changed = new HashSet<>();
+        var updated = this.collection.find(Filters.gte("updated_at", Date.from(updatedSince)))
+                .projection(Projections.include("term"));
+        for (Document document : updated) changed.add(document.getString("term"));
+        changed.remove(null);
+
+        List<String> terms = new ArrayList<>(changed);
+        for (int from = 0; from < terms.size(); from += TERM_BATCH_SIZE) {
+            var batch = terms.subList(from, Math.min(from + TERM_BATCH_SIZE, terms.size()));
+            forEachGrouped(this.collection.find(Filters.in("term", batch)).sort(Sorts.ascending("term", "bucket")), action);
+        }
+    }
+
+    private static void forEachGrouped(FindIterable<Document> bucketDocuments, Consumer<BooksTerm> action) {
+        String term = null;
+        int[] postings = new int[0];
+        int[] frequencies = new int[0];
+        for (Document bucketDocument : bucketDocuments) {
+            String documentTerm = bucketDocument.getString("term");
+            if (!documentTerm.equals(term)) {
+                if (term != null) action.accept(new BooksTerm(term, postings, frequencies));
+                term = documentTerm;
+                postings = new int[0];
+                frequencies = new int[0];
+            }
+            if (bucketDocument.get("bucket") == null) warnLegacyDocument(documentTerm);
+            int[][] bucket = decodePostings(bucketDocument);
+            int[][] merged = merge(postings, frequencies, bucket[0], bucket[1]);
+            postings = merged[0];
+            frequencies = merged[1];
+        }
+        if (term != null) action.accept(new BooksTerm(term, postings, frequencies));
+    }
+
+    @Override
+    public DocumentLengths getDocumentLengths() {
+        int[] byId = new int[1024];
+        int books = 0;
+        long total = 0;
+        int min = Integer.MAX_VALUE;
+        var documents = this.lengths.find().projection(Projections.include("book_id", "length"));
+        for (Document document : documents) {
+            int bookId = document.getInteger("book_id");
+            int length = document.getInteger("length");
+            if (bookId < 0) continue;
+            if (bookId >= byId.length) byId = Arrays.copyOf(byId, Math.max(bookId + 1, byId.length << 1));
+            byId[bookId] = length;
+            books++;
+            total += length;
+            min = Math.min(min, length);
+        }
+        if (books == 0) return DocumentLengths.EMPTY;
+        return new DocumentLengths(byId, books, Math.max(1.0, (double) total / books), Math.max(1, min));
+    }
+
+    @Override
+    public void forEachTermCreatedSince(Instant since, Consumer<String> action) {
+        var filter = since == null ? new Document() : Filters.gte("_id", firstObjectIdAt(since));
+        for (Document document : this.collection.find(filter).projection(Projections.include("term"))) {
+            String term = document.getString("term");
+            if (term != null) action.accept(term);
+        }
+    }
+
+    // A rebuild renames a new collection over the live one, which changes the collection's UUID.
+    @Override
+    public String generation() {
+        Document collectionInfo = this.database.listCollections().filter(Filters.eq("name", collectionName)).first();
+        if (collectionInfo == null) return "";
+        Document info = collectionInfo.get("info", Document.class);
+        Object uuid = info != null ? info.get("uuid") : null;
+        return uuid != null ? uuid.toString() : "";
+    }
+
+    // The indexing service bumps `generation` in the counters document on every write.
+    @Override
+    public long writeCount() {
+        Document current = this.counters.find(Filters.eq("_id", "collection"))
+                .projection(Projections.include("generation")).first();
+        Object count = current != null ? current.get("generation") : null;
+        return count instanceof Number ? ((Number) count).longValue() : 0;
+    }
+
+    // Smallest ObjectId with the given creation second, so the _id index serves the range scan.
+    private static ObjectId firstObjectIdAt(Instant instant) {
+        return new ObjectId(String.format("%08x%016x", (int) instant.getEpochSecond(), 0L));
+    }
+
+    // Indexes written before bucketing have one {term, postings} document per term, with no bucket.
+    // It sorts before the buckets and can hold ids from any range, so merge() handles the overlap;
+    // the warning asks for a rebuild, which rewrites every term into buckets.
+    private static void warnLegacyDocument(String term) {
+        if (LEGACY_WARNED.compareAndSet(false, true)) {
+            System.out.println("Index has postings documents without a bucket (first: \"" + term
+                    + "\"); run POST /index/rebuild to convert them");
+        }
+    }
+
+    // Buckets hold disjoint, ascending id ranges, so a term's postings are usually the buckets concatenated.
+    // Inside a bucket the binary postings are merged with ids appended one book at a time; for a
+    // book present in both, the appended frequency is the more recent one.
+    private static int[][] decodePostings(Document termDocument) {
+        Binary binary = termDocument.get("postings_bin", Binary.class);
+        int[] postings = binary != null ? PostingsCodec.decode(binary.getData()) : new int[0];
+        Binary binaryFrequencies = termDocument.get("tf_bin", Binary.class);
+        int[] frequencies = PostingsCodec.decodeFrequencies(
+                binaryFrequencies != null ? binaryFrequencies.getData() : null, postings.length);
+        List<String> appended = termDocument.getList("postings", String.class);
+        if (appended == null || appended.isEmpty()) return new int[][]{postings, frequencies};
+
+        Document appendedFrequencies = termDocument.get("tfs", Document.class);
+        long[] tail = new long[appended.size()];
+        for (int i = 0; i < tail.length; i++) {
+            String bookId = appended.get(i);
+            Integer tf = appendedFrequencies != null ? appendedFrequencies.getInteger(bookId) : null;
+            tail[i] = ((long) Integer.parseInt(bookId) << 32) | (tf != null ? tf : 1);
+        }
+        Arrays.sort(tail);
+
+        int[] ids = new int[postings.length + tail.length];
+        int[] tfs = new int[ids.length];
+        int i = 0, j = 0, n = 0;
+        while (i < postings.length || j < tail.length) {
+            int tailId = j < tail.length ? (int) (tail[j] >>> 32) : Integer.MAX_VALUE;
+            if (i < postings.length && postings[i] < tailId) {
+                ids[n] = postings[i];
+                tfs[n++] = frequencies[i++];
+            } else {
+                if (i < postings.length && postings[i] == tailId) i++;
+                ids[n] = tailId;
+                tfs[n++] = (int) tail[j++];
+            }
         }
+        return new int[][]{Arrays.copyOf(ids, n), Arrays.copyOf(tfs, n)};
+    }
+
+    // Concatenates when b starts after a ends; otherwise a sorted union where b's frequency wins.
+    private static int[][] merge(int[] a, int[] aFrequencies, int[] b, int[] bFrequencies) {
+        if (b.length == 0) return new int[][]{a, aFrequencies};
+        if (a.length == 0) return new int[][]{b, bFrequencies};
+        if (a[a.length - 1] < b[0]) return new int[][]{concat(a, b), concat(aFrequencies, bFrequencies)};
+        int[] ids = new int[a.length + b.length];
+        int[] tfs = new int[ids.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                ids[n] = a[i];
+                tfs[n++] = aFrequencies[i++];
+            } else {
+                if (i < a.length && a[i] == b[j]) i++;
+                ids[n] = b[j];
+                tfs[n++] = bFrequencies[j++];
+            }
+        }
+        return new int[][]{Arrays.copyOf(ids, n), Arrays.copyOf(tfs, n)};
+    }
 
-        return new BooksTerm(
-                termDocument.getString("term"),
-                termDocument.getList("postings", String.class)
-            );
+    private static int[] concat(int[] a, int[] b) {
+        int[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
     }
 }
@@ -4,14 +4,27 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.tahs.application.ports.MetadataRepository;
 import com.tahs.domain.BookMetadata;
+import com.tahs.domain.MetadataFilter;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class MongoMetadataRepository implements MetadataRepository {
+    private static final int IN_BATCH_SIZE = 5000;
+    private static final Bson PROJECTION = Projections.fields(
+            Projections.include("book_id", "title", "author", "language"), Projections.excludeId());
+    private static final Bson ID_PROJECTION = Projections.fields(Projections.include("book_id"), Projections.excludeId());
+    // Above this many candidates it is cheaper to read every id matching the filter through its
+    // index and intersect in memory than to send the candidates as $in lists.
+    private static final int SCAN_FILTER_THRESHOLD = 4 * IN_BATCH_SIZE;
 
     private final MongoDatabase database;
     private final MongoCollection<Document> collection;
@@ -19,14 +32,99 @@ public class MongoMetadataRepository implements MetadataRepository {
     public MongoMetadataRepository(MongoClient mongoClient, String databaseName, String collectionName) {
         this.database = mongoClient.getDatabase(databaseName);
         this.collection = this.database.getCollection(collectionName);
+        createIndexes();
+    }
+
+    // Leading equality fields with book_id last let filtered $in queries be answered from the index.
+    private void createIndexes() {
+        collection.createIndex(Indexes.ascending("book_id"));
+        collection.createIndex(Indexes.ascending("language", "book_id"));
+        collection.createIndex(Indexes.ascending("author", "book_id"));
     }
 
     @Override
-    public BookMetadata getById(String bookId) {
-        Document bookDocument =  this.collection.find((Filters.eq("book_id", Integer.parseInt(bookId)))).first();
+    public BookMetadata getById(int bookId) {
+        Document bookDocument =  this.collection.find((Filters.eq("book_id", bookId))).first();
         if(bookDocument == null) {
             throw new IllegalArgumentException("Term not found");
         }
+        return toBookMetadata(bookDocument);
+    }
+
+    @Override
+    public List<BookMetadata> getByIds(int[] bookIds) {
+        List<BookMetadata> books = new ArrayList<>(bookIds.length);
+        for (int from = 0; from < bookIds.length; from += IN_BATCH_SIZE) {
+            List<Integer> batch = new ArrayList<>(Math.min(IN_BATCH_SIZE, bookIds.length - from));
+            for (int i = from; i < Math.min(from + IN_BATCH_SIZE, bookIds.length); i++) batch.add(bookIds[i]);
+            for (Document bookDocument : this.collection.find(Filters.in("book_id", batch)).projection(PROJECTION)) {
+                books.add(toBookMetadata(bookDocument));
+            }
+        }
+        return books;
+    }
+
+    @Override
+    public int[] filterIds(int[] bookIds, MetadataFilter filter) {
+        if (filter.isEmpty() || bookIds.length == 0) return bookIds;
+        List<Bson> conditions = new ArrayList<>(3);
+        if (filter.author() != null) conditions.add(Filters.eq("author", filter.author()));
+        if (filter.language() != null) conditions.add(Filters.eq("language", filter.language()));
+
+        if (bookIds.length > SCAN_FILTER_THRESHOLD) {
+            int[] matching = sortedDistinct(findIds(Filters.and(conditions), 1024));
+            int[] out = new int[Math.min(bookIds.length, matching.length)];
+            int n = 0;
+            for (int id : matching) {
+                if (Arrays.binarySearch(bookIds, id) >= 0) out[n++] = id;
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        int[] out = new int[bookIds.length];
+        int n = 0;
+        for (int from = 0; from < bookIds.length; from += IN_BATCH_SIZE) {
+            List<Integer> batch = new ArrayList<>(Math.min(IN_BATCH_SIZE, bookIds.length - from));
+            for (int i = from; i < Math.min(from + IN_BATCH_SIZE, bookIds.length); i++) batch.add(bookIds[i]);
+            List<Bson> batchConditions = new ArrayList<>(conditions);
+            batchConditions.add(Filters.in("book_id", batch));
+            for (int id : findIds(Filters.and(batchConditions), batch.size())) {
+                if (n == out.length) out = Arrays.copyOf(out, n << 1);
+                out[n++] = id;
+            }
+        }
+        return sortedDistinct(Arrays.copyOf(out, n));
+    }
+
+    private static int[] sortedDistinct(int[] ids) {
+        Arrays.sort(ids);
+        int n = 0;
+        for (int id : ids) {
+            if (n == 0 || ids[n - 1] != id) ids[n++] = id;
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    @Override
+    public void forEach(Consumer<BookMetadata> action) {
+        for (Document bookDocument : this.collection.find().projection(PROJECTION)) {
+            action.accept(toBookMetadata(bookDocument));
+        }
+    }
+
+    private int[] findIds(Bson filter, int expected) {
+        int[] ids = new int[Math.max(16, expected)];
+        int n = 0;
+        for (Document bookDocument : this.collection.find(filter).projection(ID_PROJECTION)) {
+            Integer id = bookDocument.getInteger("book_id");
+            if (id == null) continue;
+            if (n == ids.length) ids = Arrays.copyOf(ids, n << 1);
+            ids[n++] = id;
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    private static BookMetadata toBookMetadata(Document bookDocument) {
         return new BookMetadata(
                 bookDocument.getInteger("book_id"),
                 bookDocument.getString("title"),
@@ -0,0 +1,85 @@
+package com.tahs.infrastructure.persistence;
+
+import java.util.Arrays;
+
+// Decoder for the binary postings written by the indexing service: one tag byte, varint
+// count, then either varint deltas between sorted book ids or a varint base plus a bitmap.
+public final class PostingsCodec {
+    static final byte DELTA_VARINT = 1;
+    static final byte BITMAP = 2;
+    private static final int[] EMPTY = new int[0];
+
+    private PostingsCodec() {
+    }
+
+    public static int[] decode(byte[] data) {
+        if (data == null || data.length == 0) return EMPTY;
+        Reader in = new Reader(data);
+        byte tag = in.get();
+        int count = in.varint();
+        int[] ids = new int[count];
+        if (tag == DELTA_VARINT) {
+            int id = 0;
+            for (int i = 0; i < count; i++) {
+                id += in.varint();
+                ids[i] = id;
+            }
+        } else if (tag == BITMAP) {
+            int base = in.varint();
+            int words = in.varint();
+            int n = 0;
+            for (int w = 0; w < words; w++) {
+                long word = in.longLE();
+                while (word != 0) {
+                    ids[n++] = base + (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown postings encoding: " + tag);
+        }
+        return ids;
+    }
+
+    // Term frequencies are plain varints in postings order; older documents have none (tf = 1).
+    public static int[] decodeFrequencies(byte[] data, int count) {
+        int[] frequencies = new int[count];
+        if (data == null) {
+            Arrays.fill(frequencies, 1);
+            return frequencies;
+        }
+        Reader in = new Reader(data);
+        for (int i = 0; i < count; i++) frequencies[i] = in.varint();
+        return frequencies;
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte get() {
+            return bytes[position++];
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+
+        long longLE() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (bytes[position++] & 0xFFL) << (i << 3);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.tahs.infrastructure.persistence.segments;
+
+import com.tahs.application.ports.InvertedIndexRepository;
+import com.tahs.domain.BooksTerm;
+import com.tahs.domain.DocumentLengths;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Reads the file-based index the indexing service writes with INDEX_STORE=file. The live
+// segments are memory-mapped; a term's postings are the union of its postings in every segment,
+// where a newer segment's frequency wins for the same book. The MANIFEST is polled and, when its
+// generation changes, a new view is built (reusing readers of segments that survived) and
+// swapped in, so queries never block on a reload.
+public class SegmentInvertedIndexRepository implements InvertedIndexRepository {
+    public record Stats(long generation, int segments, long mappedBytes, int books, Instant lastReload) {}
+
+    private record View(SegmentManifest manifest, List<SegmentReader> readers, DocumentLengths lengths,
+                        Instant loadedAt) {}
+
+    private final Path directory;
+    private final ScheduledExecutorService refresher;
+    private volatile View view;
+
+    public SegmentInvertedIndexRepository(Path directory, Duration refreshInterval) {
+        this.directory = directory;
+        this.view = new View(new SegmentManifest(-1, List.of()), List.of(), DocumentLengths.EMPTY, null);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refreshQuietly();
+        long millis = Math.max(100, refreshInterval.toMillis());
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public BooksTerm getBooksByTerm(String term) {
+        int[] ids = new int[0];
+        int[] frequencies = new int[0];
+        for (SegmentReader reader : view.readers()) {
+            BooksTerm found = reader.find(term);
+            if (found == null) continue;
+            if (ids.length == 0) {
+                ids = found.booksId();
+                frequencies = found.frequencies();
+            } else {
+                int[][] merged = union(ids, frequencies, found.booksId(), found.frequencies());
+                ids = merged[0];
+                frequencies = merged[1];
+            }
+        }
+        return new BooksTerm(term, ids, frequencies);
+    }
+
+    @Override
+    public DocumentLengths getDocumentLengths() {
+        return view.lengths();
+    }
+
+    // A merged segment takes the newest creation time of its inputs, so its terms may be reported again.
+    @Override
+    public void forEachTermCreatedSince(Instant since, Consumer<String> action) {
+        View current = view;
+        List<SegmentManifest.Entry> segments = current.manifest().segments();
+        for (int i = 0; i < segments.size(); i++) {
+            if (since == null || segments.get(i).createdAtMillis() >= since.toEpochMilli()) {
+                current.readers().get(i).forEachTerm(action);
+            }
+        }
+    }
+
+    // Every manifest change is a new generation here; the view itself is always current.
+    @Override
+    public String generation() {
+        return Long.toString(view.manifest().generation());
+    }
+
+    @Override
+    public long writeCount() {
+        return view.manifest().generation();
+    }
+
+    public Stats stats() {
+        View current = view;
+        long mapped = current.readers().stream().mapToLong(SegmentReader::mappedBytes).sum();
+        return new Stats(current.manifest().generation(), current.readers().size(), mapped,
+                current.lengths().books(), current.loadedAt());
+    }
+
+    void refresh() throws IOException {
+        View current = view;
+        SegmentManifest manifest = SegmentManifest.read(directory);
+        if (manifest.generation() == current.manifest().generation()) return;
+
+        Map<String, SegmentReader> open = new HashMap<>();
+        for (SegmentReader reader : current.readers()) open.put(reader.name(), reader);
+        List<SegmentReader> readers = new ArrayList<>(manifest.segments().size());
+        for (SegmentManifest.Entry segment : manifest.segments()) {
+            SegmentReader reader = open.get(segment.name());
+            readers.add(reader != null ? reader : SegmentReader.open(directory, segment.name()));
+        }
+        view = new View(manifest, List.copyOf(readers), documentLengths(readers), Instant.now());
+        System.out.println("Segment index generation " + manifest.generation() + ": " + readers.size() + " segments");
+    }
+
+    // A merge can delete files listed in the manifest just read; the next poll picks up its successor.
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            System.err.println("Segment index refresh failed: " + e.getMessage());
+        }
+    }
+
+    private static DocumentLengths documentLengths(List<SegmentReader> readers) {
+        int[] byId = new int[1024];
+        for (SegmentReader reader : readers) {
+            int maxBookId = reader.lengthsInto(byId);
+            if (maxBookId >= byId.length) {
+                byId = Arrays.copyOf(byId, Math.max(maxBookId + 1, byId.length << 1));
+                reader.lengthsInto(byId);
+            }
+        }
+        int books = 0;
+        long total = 0;
+        int min = Integer.MAX_VALUE;
+        for (int length : byId) {
+            if (length == 0) continue;
+            books++;
+            total += length;
+            min = Math.min(min, length);
+        }
+        if (books == 0) return DocumentLengths.EMPTY;
+        return new DocumentLengths(byId, books, Math.max(1.0, (double) total / books), Math.max(1, min));
+    }
+
+    // On a shared book id the frequency from the newer segment (b) wins.
+    private static int[][] union(int[] aIds, int[] aTfs, int[] bIds, int[] bTfs) {
+        int[] ids = new int[aIds.length + bIds.length];
+        int[] tfs = new int[ids.length];
+        int i = 0, j = 0, n = 0;
+        while (i < aIds.length && j < bIds.length) {
+            if (aIds[i] < bIds[j]) { ids[n] = aIds[i]; tfs[n++] = aTfs[i++]; }
+            else if (aIds[i] > bIds[j]) { ids[n] = bIds[j]; tfs[n++] = bTfs[j++]; }
+            else { ids[n] = bIds[j]; tfs[n++] = bTfs[j++]; i++; }
+        }
+        while (i < aIds.length) { ids[n] = aIds[i]; tfs[n++] = aTfs[i++]; }
+        while (j < bIds.length) { ids[n] = bIds[j]; tfs[n++] = bTfs[j++]; }
+        return new int[][]{Arrays.copyOf(ids, n), Arrays.copyOf(tfs, n)};
+    }
+}
@@ -0,0 +1,36 @@
+package com.tahs.infrastructure.persistence.segments;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read side of the MANIFEST the indexing service publishes: live segments, oldest first.
+//   generation <n>
+//   segment <name> <created epoch millis> <bytes>
+record SegmentManifest(long generation, List<Entry> segments) {
+    record Entry(String name, long createdAtMillis, long bytes) {}
+
+    static SegmentManifest read(Path directory) throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(directory.resolve("MANIFEST"), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return new SegmentManifest(0, List.of());
+        }
+        long generation = 0;
+        List<Entry> segments = new ArrayList<>();
+        for (String line : lines) {
+            String[] fields = line.trim().split(" ");
+            if (fields[0].equals("generation")) {
+                generation = Long.parseLong(fields[1]);
+            } else if (fields[0].equals("segment")) {
+                segments.add(new Entry(fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3])));
+            }
+        }
+        return new SegmentManifest(generation, List.copyOf(segments));
+    }
+}
@@ -0,0 +1,116 @@
+package com.tahs.infrastructure.persistence.segments;
+
+import com.tahs.domain.BooksTerm;
+import com.tahs.infrastructure.persistence.PostingsCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+// Memory-mapped reader over one immutable segment written by the indexing service
+// (see its SegmentWriter for the layout). Lookups binary-search the dictionary's offset table,
+// so a term costs O(log terms) page touches and the OS page cache does the caching.
+final class SegmentReader {
+    private static final int TDX_MAGIC = 0x31584454;
+    private static final int LEN_MAGIC = 0x314E454C;
+
+    private final String name;
+    private final ByteBuffer dictionary;
+    private final ByteBuffer postings;
+    private final ByteBuffer lengths;
+    private final int terms;
+    private final int tableOffset;
+
+    private SegmentReader(String name, ByteBuffer dictionary, ByteBuffer postings, ByteBuffer lengths) {
+        this.name = name;
+        this.dictionary = dictionary;
+        this.postings = postings;
+        this.lengths = lengths;
+        int footer = dictionary.limit() - 16;
+        if (footer < 0 || dictionary.getInt(footer + 12) != TDX_MAGIC || lengths.getInt(0) != LEN_MAGIC) {
+            throw new IllegalStateException("Corrupt segment " + name);
+        }
+        this.tableOffset = Math.toIntExact(dictionary.getLong(footer));
+        this.terms = dictionary.getInt(footer + 8);
+    }
+
+    static SegmentReader open(Path directory, String name) throws IOException {
+        return new SegmentReader(name,
+                map(directory.resolve(name + ".tdx")),
+                map(directory.resolve(name + ".pst")),
+                map(directory.resolve(name + ".len")));
+    }
+
+    String name() {
+        return name;
+    }
+
+    int terms() {
+        return terms;
+    }
+
+    long mappedBytes() {
+        return (long) dictionary.limit() + postings.limit() + lengths.limit();
+    }
+
+    BooksTerm find(String term) {
+        int low = 0, high = terms - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = entryOffset(middle);
+            int comparison = term(entry).compareTo(term);
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return postings(term, entry);
+        }
+        return null;
+    }
+
+    void forEachTerm(Consumer<String> action) {
+        for (int i = 0; i < terms; i++) action.accept(term(entryOffset(i)));
+    }
+
+    // Returns the largest book id seen, so the caller can size its dense array.
+    int lengthsInto(int[] lengthsByBookId) {
+        int count = lengths.getInt(4);
+        int maxBookId = -1;
+        for (int i = 0, at = 8; i < count; i++, at += 8) {
+            int bookId = lengths.getInt(at);
+            maxBookId = Math.max(maxBookId, bookId);
+            if (bookId >= 0 && bookId < lengthsByBookId.length) lengthsByBookId[bookId] = lengths.getInt(at + 4);
+        }
+        return maxBookId;
+    }
+
+    private String term(int entry) {
+        byte[] key = new byte[Short.toUnsignedInt(dictionary.getShort(entry))];
+        dictionary.get(entry + 2, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private BooksTerm postings(String term, int entry) {
+        int at = entry + 2 + Short.toUnsignedInt(dictionary.getShort(entry));
+        int offset = Math.toIntExact(dictionary.getLong(at));
+        int count = dictionary.getInt(at + 8);
+        byte[] ids = new byte[dictionary.getInt(at + 12)];
+        byte[] frequencies = new byte[dictionary.getInt(at + 16)];
+        postings.get(offset, ids);
+        postings.get(offset + ids.length, frequencies);
+        return new BooksTerm(term, PostingsCodec.decode(ids), PostingsCodec.decodeFrequencies(frequencies, count));
+    }
+
+    private int entryOffset(int index) {
+        return dictionary.getInt(tableOffset + (index << 2));
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}